@@ -0,0 +1,231 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.Collection;
+
+/**
+ * A {@link Pool} that adapts the number of idle objects it retains to the observed demand.<br>
+ * Demand is measured in windows. During a window, this pool tracks the peak number of objects that are checked out at
+ * the same time. When a window is closed, the peak is folded into an exponentially weighted moving average (EWMA) that
+ * estimates the working set. Idle objects above the working set are trimmed gradually: {@link #recycle(Object)} stops
+ * retaining objects once the pool holds enough idle objects to cover the working set, and {@link #maintain()} discards
+ * up to a fixed number of excess idle objects per call. This way, retained memory follows the real load instead of the
+ * historical maximum.<br>
+ * A window is closed every time {@link #maintain()} is called, and also every {@code windowLength} calls to
+ * {@link #obtain()} if a positive window length is specified.<br>
+ * Note that objects recycled before any demand has been observed are discarded, since the estimated working set is
+ * still zero.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <T>
+ */
+public abstract class AdaptivePool<T> extends Pool<T> {
+
+	/**
+	 * The EWMA approaches its target without ever reaching it, so fractions below this tolerance are ignored when the
+	 * working set is rounded up. Otherwise a pool that has gone idle would retain one object forever.
+	 */
+	private static final double ESTIMATION_TOLERANCE = 0.01;
+
+	private final double smoothingFactor;
+	private final int windowLength;
+	private final int trimStep;
+	private int numCheckedOut;
+	private int windowPeak;
+	private int numObtainsInWindow;
+	private double estimatedWorkingSet;
+
+	/**
+	 * Creates a new empty AdaptivePool with initial capacity for 10 elements, a smoothing factor of 0.25, windows that
+	 * are only closed by {@link #maintain()} and a trim step of 8 objects.
+	 */
+	public AdaptivePool() {
+		this(10, 0.25, 0, 8);
+	}
+
+	/**
+	 * Creates a new empty AdaptivePool.
+	 *
+	 * @param initialCapacity Initial capacity.
+	 * @param smoothingFactor Weight of the last window in the working set estimation. Must be in the range (0, 1].
+	 * @param windowLength Number of calls to {@link #obtain()} after which the current window is closed, or 0 if
+	 *            windows are only closed by {@link #maintain()}.
+	 * @param trimStep Maximum number of idle objects discarded per call to {@link #maintain()}.
+	 * @throws IllegalArgumentException if any of the parameters is out of range
+	 */
+	public AdaptivePool(int initialCapacity, double smoothingFactor, int windowLength, int trimStep) {
+		super(initialCapacity);
+		if (!(smoothingFactor > 0 && smoothingFactor <= 1)) {
+			throw new IllegalArgumentException("smoothingFactor must be in the range (0, 1].");
+		}
+		if (windowLength < 0) {
+			throw new IllegalArgumentException("windowLength can not be negative.");
+		}
+		if (trimStep < 1) {
+			throw new IllegalArgumentException("trimStep must be greater than 0.");
+		}
+		this.smoothingFactor = smoothingFactor;
+		this.windowLength = windowLength;
+		this.trimStep = trimStep;
+		this.numCheckedOut = 0;
+		this.windowPeak = 0;
+		this.numObtainsInWindow = 0;
+		this.estimatedWorkingSet = 0;
+	}
+
+	@Override
+	public T obtain() {
+		T object = super.obtain();
+		recordObtained(1);
+		return object;
+	}
+
+	@Override
+	public void obtain(T[] dst, int n) {
+		super.obtain(dst, n);
+		recordObtained(n);
+	}
+
+	@Override
+	public void obtain(Collection<? super T> dst, int n) {
+		super.obtain(dst, n);
+		recordObtained(n);
+	}
+
+	/**
+	 * Adds the specified object to this Pool so it can be reused later, unless this Pool already holds enough idle
+	 * objects to cover the estimated working set. In that case, the object is discarded.<br>
+	 * If the specified object is a {@link Poolable} object and it is retained, its {@link Poolable#reset()} method will
+	 * be called.
+	 *
+	 * @param object Object to be added.
+	 * @throws IllegalArgumentException if the specified object is null
+	 */
+	@Override
+	public void recycle(T object) {
+		if (object == null) {
+			throw new IllegalArgumentException("The specified object can not be null.");
+		}
+		if (numCheckedOut > 0) {
+			numCheckedOut--;
+		}
+		if (size() < getIdleTarget()) {
+			super.recycle(object);
+		}
+	}
+
+	/**
+	 * Adds the objects stored in the first positions of the specified array to this Pool, except those that exceed the
+	 * number of idle objects needed to cover the estimated working set, which are discarded.<br>
+	 * {@link Poolable} objects are reset before they are added.
+	 * 
+	 * @param objects Array that contains the objects to be added.
+	 * @param n Number of objects.
+	 * @throws IllegalArgumentException if n is negative or greater than the length of the array, or if any of the
+	 *             objects is null. In that case, no object is added
+	 */
+	@Override
+	public void recycleAll(T[] objects, int n) {
+		checkBatchLength(objects.length, n);
+		checkNotNull(objects, 0, n);
+		numCheckedOut = Math.max(0, numCheckedOut - n);
+		int numRetained = Math.min(n, Math.max(0, getIdleTarget() - size()));
+		super.recycleAll(objects, numRetained);
+	}
+
+	/**
+	 * Adds all the specified objects to this Pool, except those that exceed the number of idle objects needed to cover
+	 * the estimated working set, which are discarded.
+	 * 
+	 * @param objects Objects to be added.
+	 * @throws IllegalArgumentException if any of the specified objects is null. The objects that precede it are added
+	 */
+	@Override
+	public void recycleAll(Iterable<? extends T> objects) {
+		for (T object : objects) {
+			recycle(object);
+		}
+	}
+
+	/**
+	 * Closes the current window and discards up to {@code trimStep} idle objects above the estimated working set.<br>
+	 * This method is meant to be called periodically, for example once per frame or once per second.
+	 */
+	public void maintain() {
+		closeWindow();
+		int idleTarget = getIdleTarget();
+		if (size() > idleTarget) {
+			trim(Math.max(idleTarget, size() - trimStep));
+		}
+	}
+
+	/**
+	 * Returns the estimated working set, that is, the number of objects that are expected to be checked out at the same
+	 * time. This is the maximum between the EWMA of the window peaks and the peak of the current window.
+	 *
+	 * @return Estimated working set
+	 */
+	public int getEstimatedWorkingSet() {
+		return Math.max((int) Math.ceil(estimatedWorkingSet - ESTIMATION_TOLERANCE), windowPeak);
+	}
+
+	/**
+	 * Returns the number of objects that have been obtained from this Pool and not yet recycled.
+	 *
+	 * @return Number of checked out objects
+	 */
+	public int getNumCheckedOut() {
+		return numCheckedOut;
+	}
+
+	/**
+	 * Returns the number of idle objects this Pool should retain to cover the estimated working set.
+	 *
+	 * @return Number of idle objects to retain
+	 */
+	private int getIdleTarget() {
+		return Math.max(0, getEstimatedWorkingSet() - numCheckedOut);
+	}
+
+	/**
+	 * Records that the specified number of objects have been checked out.
+	 * 
+	 * @param numObjects Number of objects.
+	 */
+	private void recordObtained(int numObjects) {
+		numCheckedOut += numObjects;
+		if (numCheckedOut > windowPeak) {
+			windowPeak = numCheckedOut;
+		}
+		if (windowLength > 0) {
+			numObtainsInWindow += numObjects;
+			if (numObtainsInWindow >= windowLength) {
+				closeWindow();
+			}
+		}
+	}
+
+	/**
+	 * Folds the peak of the current window into the working set estimation and starts a new window.
+	 */
+	private void closeWindow() {
+		estimatedWorkingSet += smoothingFactor * (windowPeak - estimatedWorkingSet);
+		windowPeak = numCheckedOut;
+		numObtainsInWindow = 0;
+	}
+
+}
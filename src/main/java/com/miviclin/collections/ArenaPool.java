@@ -0,0 +1,211 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+/**
+ * An object pool whose objects are released in bulk instead of one by one. Objects obtained from this pool belong to
+ * the current scope, and they are all returned to the pool at once when the scope ends. This is useful for objects that
+ * live exactly one frame or one request: call {@link #releaseAll()} at the end of the frame instead of recycling every
+ * object.<br>
+ * Scopes can be nested with {@link #beginScope()} and {@link #endScope()}. Ending a scope only releases the objects
+ * obtained since the matching call to {@link #beginScope()}.<br>
+ * Objects are kept in a single array where the objects in use are stored before the free objects, so releasing a scope
+ * is a linear sweep over the released objects and does not allocate. If the objects are {@link Pool.Poolable}, their
+ * {@link Pool.Poolable#reset()} method is called when they are released.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <T>
+ */
+public abstract class ArenaPool<T> {
+
+	private Object[] objects;
+	private int numObjects;
+	private int numObtained;
+	private int[] scopeMarks;
+	private int numScopes;
+
+	/**
+	 * Creates a new empty ArenaPool with initial capacity for 10 elements and 4 nested scopes.
+	 */
+	public ArenaPool() {
+		this(10, 4);
+	}
+
+	/**
+	 * Creates a new empty ArenaPool.
+	 *
+	 * @param initialCapacity Initial capacity.
+	 * @param initialScopeDepth Initial number of nested scopes that can be opened without growing the scope stack.
+	 */
+	public ArenaPool(int initialCapacity, int initialScopeDepth) {
+		this.objects = new Object[Math.max(initialCapacity, 1)];
+		this.numObjects = 0;
+		this.numObtained = 0;
+		this.scopeMarks = new int[Math.max(initialScopeDepth, 1)];
+		this.numScopes = 0;
+	}
+
+	/**
+	 * Creates the specified number of objects and stores them in this ArenaPool, so that they do not need to be created
+	 * later.
+	 *
+	 * @param numObjectsToCreate Number of objects.
+	 */
+	public void preallocate(int numObjectsToCreate) {
+		ensureCapacity(numObjects + numObjectsToCreate);
+		for (int i = 0; i < numObjectsToCreate; i++) {
+			objects[numObjects] = createObject();
+			numObjects++;
+		}
+	}
+
+	/**
+	 * Returns a free object from this ArenaPool or creates and returns a new object if there are no free objects.<br>
+	 * The returned object belongs to the current scope until the scope is ended or {@link #releaseAll()} is called.
+	 *
+	 * @return A free object from this ArenaPool or a new object
+	 * @see #createObject()
+	 */
+	@SuppressWarnings("unchecked")
+	public T obtain() {
+		if (numObtained == numObjects) {
+			ensureCapacity(numObjects + 1);
+			objects[numObjects] = createObject();
+			numObjects++;
+		}
+		T object = (T) objects[numObtained];
+		numObtained++;
+		return object;
+	}
+
+	/**
+	 * Creates a new object.<br>
+	 * This method is called from {@link #obtain()} when this pool has no free objects.
+	 *
+	 * @return New object
+	 */
+	public abstract T createObject();
+
+	/**
+	 * Opens a new scope nested in the current scope. Objects obtained from now on can be released with
+	 * {@link #endScope()} without releasing the objects obtained by the enclosing scopes.
+	 */
+	public void beginScope() {
+		if (numScopes == scopeMarks.length) {
+			int[] newScopeMarks = new int[scopeMarks.length * 2];
+			System.arraycopy(scopeMarks, 0, newScopeMarks, 0, numScopes);
+			scopeMarks = newScopeMarks;
+		}
+		scopeMarks[numScopes] = numObtained;
+		numScopes++;
+	}
+
+	/**
+	 * Ends the innermost scope and releases all objects obtained since it was opened.
+	 *
+	 * @throws IllegalStateException if there is no open scope
+	 */
+	public void endScope() {
+		if (numScopes == 0) {
+			throw new IllegalStateException("There is no open scope.");
+		}
+		numScopes--;
+		releaseFrom(scopeMarks[numScopes]);
+	}
+
+	/**
+	 * Releases all objects obtained from this ArenaPool and closes every open scope.
+	 */
+	public void releaseAll() {
+		numScopes = 0;
+		releaseFrom(0);
+	}
+
+	/**
+	 * Returns the number of free objects in this ArenaPool.
+	 *
+	 * @return Number of free objects in this ArenaPool
+	 */
+	public int size() {
+		return numObjects - numObtained;
+	}
+
+	/**
+	 * Returns true if this ArenaPool has no free objects (size() == 0).
+	 *
+	 * @return true if this ArenaPool has no free objects, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the number of objects that have been obtained and not yet released.
+	 *
+	 * @return Number of objects in use
+	 */
+	public int getNumObtained() {
+		return numObtained;
+	}
+
+	/**
+	 * Returns the number of scopes that are currently open.
+	 *
+	 * @return Number of open scopes
+	 */
+	public int getScopeDepth() {
+		return numScopes;
+	}
+
+	/**
+	 * Removes all free objects from this ArenaPool. Objects in use are not affected.
+	 */
+	public void clear() {
+		for (int i = numObtained; i < numObjects; i++) {
+			objects[i] = null;
+		}
+		numObjects = numObtained;
+	}
+
+	/**
+	 * Releases the objects in use from the specified index to the last object in use.
+	 *
+	 * @param fromIndex Index of the first object to be released.
+	 */
+	private void releaseFrom(int fromIndex) {
+		for (int i = fromIndex; i < numObtained; i++) {
+			Object object = objects[i];
+			if (object instanceof Pool.Poolable) {
+				((Pool.Poolable) object).reset();
+			}
+		}
+		numObtained = fromIndex;
+	}
+
+	/**
+	 * Grows the backing array if needed so that it can hold the specified number of objects.
+	 *
+	 * @param minCapacity Minimum capacity.
+	 */
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity > objects.length) {
+			Object[] newObjects = new Object[Math.max(minCapacity, objects.length * 2)];
+			System.arraycopy(objects, 0, newObjects, 0, numObjects);
+			objects = newObjects;
+		}
+	}
+
+}
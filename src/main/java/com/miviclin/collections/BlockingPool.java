@@ -0,0 +1,894 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe {@link Pool} that never creates more than a fixed number of objects. This pool is useful for expensive
+ * objects, such as parsers, compression contexts or native handles, where the number of live objects must stay within
+ * a budget.<br>
+ * When the pool is empty and the budget is exhausted, callers wait until another caller recycles an object. Waiting
+ * callers are served in FIFO order, and recycled objects are handed directly to the first waiting caller without
+ * passing through the pool. Batches are obtained all at once, so a waiting batch never holds part of the budget, and a
+ * batch whose creation fails gives back everything it had taken before the exception is rethrown. Callers can wait
+ * synchronously with {@link #obtain()} or {@link #obtain(long, TimeUnit)}, or asynchronously with
+ * {@link #obtainAsync()} and {@link #obtainAsync(Callback)}.<br>
+ * Budget that becomes free while callers are waiting, because an object was removed with {@link #trim(int)} or because
+ * {@link #createObject()} failed, is handed to the first waiting caller, which then gets a new object.<br>
+ * All waits use {@link ReentrantLock} and {@link Condition}, so waiting threads do not hold any monitor.<br>
+ * Objects recycled into this pool are expected to have been obtained from it. Recycling foreign objects makes the pool
+ * hold more objects than its budget.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <T>
+ */
+public abstract class BlockingPool<T> extends Pool<T> {
+
+	private final int maxObjects;
+	private final ReentrantLock lock;
+	private final ArrayDeque<ObtainFuture> waiters;
+	private final ArrayDeque<ObtainFuture> handOffs;
+	private int numCreated;
+
+	/**
+	 * Creates a new empty BlockingPool.
+	 *
+	 * @param maxObjects Maximum number of objects this pool will create.
+	 * @throws IllegalArgumentException if maxObjects is less than 1
+	 */
+	public BlockingPool(int maxObjects) {
+		this(maxObjects, false);
+	}
+
+	/**
+	 * Creates a new empty BlockingPool.
+	 *
+	 * @param maxObjects Maximum number of objects this pool will create.
+	 * @param fairLock true if the internal lock should use a fair ordering policy.
+	 * @throws IllegalArgumentException if maxObjects is less than 1
+	 */
+	public BlockingPool(int maxObjects, boolean fairLock) {
+		super(Math.min(maxObjects, 16));
+		if (maxObjects < 1) {
+			throw new IllegalArgumentException("maxObjects must be greater than 0.");
+		}
+		this.maxObjects = maxObjects;
+		this.lock = new ReentrantLock(fairLock);
+		this.waiters = new ArrayDeque<>();
+		this.handOffs = new ArrayDeque<>();
+		this.numCreated = 0;
+	}
+
+	/**
+	 * Returns an object from this Pool, or creates a new object if the Pool is empty and the budget allows it. Otherwise,
+	 * waits until another caller recycles an object. The wait is not interruptible.
+	 *
+	 * @return An object from this Pool or a new object
+	 * @see #obtain(long, TimeUnit)
+	 */
+	@Override
+	public T obtain() {
+		lock.lock();
+		try {
+			if (mustWait(1)) {
+				ObtainFuture future = enqueueWaiter(null);
+				while (!future.done) {
+					future.condition.awaitUninterruptibly();
+				}
+				if (future.object != null) {
+					return future.object;
+				}
+			} else if (super.size() > 0) {
+				return super.obtain();
+			} else {
+				numCreated++;
+			}
+		} finally {
+			lock.unlock();
+		}
+		return createReservedObject();
+	}
+
+	/**
+	 * Stores the specified number of objects in the first positions of the specified array. Pooled objects are taken and
+	 * the budget for the shortfall is reserved under a single acquisition of the lock. If the pooled objects and the free
+	 * budget do not cover the whole batch, waits until they do, without taking any object in the meantime. The wait is
+	 * not interruptible.<br>
+	 * If {@link #createObject()} fails, the pooled objects are recycled, the reserved budget is released and the first n
+	 * positions of the array are cleared before the exception is rethrown.
+	 * 
+	 * @param dst Array where the objects will be stored.
+	 * @param n Number of objects.
+	 * @throws IllegalArgumentException if n is negative or greater than the length of the array or the maximum number of
+	 *             objects of this Pool
+	 * @see #obtain()
+	 */
+	@Override
+	public void obtain(T[] dst, int n) {
+		checkBatchLength(Math.min(dst.length, maxObjects), n);
+		int numPooled;
+		lock.lock();
+		try {
+			if (mustWait(n)) {
+				numPooled = awaitBatch(dst, n);
+			} else {
+				numPooled = removePooled(dst, 0, n);
+				numCreated += n - numPooled;
+			}
+		} finally {
+			lock.unlock();
+		}
+		createBatch(dst, numPooled, n);
+	}
+
+	/**
+	 * Adds the specified number of objects to the specified collection. Pooled objects are taken and the budget for the
+	 * shortfall is reserved under a single acquisition of the lock. If the pooled objects and the free budget do not
+	 * cover the whole batch, waits until they do, without taking any object in the meantime. The wait is not
+	 * interruptible.<br>
+	 * The objects are only added to the collection once the whole batch has been obtained. If {@link #createObject()}
+	 * fails, the pooled objects are recycled and the reserved budget is released before the exception is rethrown.
+	 * 
+	 * @param dst Collection where the objects will be added.
+	 * @param n Number of objects.
+	 * @throws IllegalArgumentException if n is negative or greater than the maximum number of objects of this Pool
+	 * @see #obtain()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void obtain(Collection<? super T> dst, int n) {
+		checkBatchLength(maxObjects, n);
+		Object[] batch = new Object[n];
+		int numPooled;
+		lock.lock();
+		try {
+			if (mustWait(n)) {
+				numPooled = awaitBatch(batch, n);
+			} else {
+				numPooled = removePooled(batch, 0, n);
+				numCreated += n - numPooled;
+			}
+		} finally {
+			lock.unlock();
+		}
+		createBatch(batch, numPooled, n);
+		for (int i = 0; i < n; i++) {
+			dst.add((T) batch[i]);
+		}
+	}
+
+	/**
+	 * Returns an object from this Pool, or creates a new object if the Pool is empty and the budget allows it. Otherwise,
+	 * waits up to the specified time until another caller recycles an object.
+	 *
+	 * @param timeout Maximum time to wait.
+	 * @param unit Unit of the timeout.
+	 * @return An object from this Pool, a new object, or null if the timeout elapsed before an object was available
+	 * @throws InterruptedException if the current thread is interrupted while waiting
+	 */
+	public T obtain(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lock();
+		try {
+			if (mustWait(1)) {
+				ObtainFuture future = enqueueWaiter(null);
+				try {
+					while (!future.done) {
+						if (nanos <= 0) {
+							waiters.remove(future);
+							return null;
+						}
+						nanos = future.condition.awaitNanos(nanos);
+					}
+				} catch (InterruptedException e) {
+					abandon(future);
+					throw e;
+				}
+				if (future.object != null) {
+					return future.object;
+				}
+			} else if (super.size() > 0) {
+				return super.obtain();
+			} else {
+				numCreated++;
+			}
+		} finally {
+			unlockAndFinishHandOffs();
+		}
+		return createReservedObject();
+	}
+
+	/**
+	 * Returns an object from this Pool, or creates a new object if the Pool is empty and the budget allows it. Otherwise,
+	 * or if other callers are already waiting, returns null immediately.
+	 *
+	 * @return An object from this Pool, a new object, or null if no object is available
+	 */
+	public T tryObtain() {
+		lock.lock();
+		try {
+			if (mustWait(1)) {
+				return null;
+			}
+			if (super.size() > 0) {
+				return super.obtain();
+			}
+			numCreated++;
+		} finally {
+			lock.unlock();
+		}
+		return createReservedObject();
+	}
+
+	/**
+	 * Returns a Future that completes with an object from this Pool as soon as one is available. If an object is
+	 * available right away, or the budget allows creating a new one, the returned Future is already completed.
+	 * Otherwise, it is completed when another caller recycles an object. Pending Futures are completed in FIFO order.<br>
+	 * If {@link #createObject()} fails, the Future completes exceptionally. Cancelling a pending Future removes it from
+	 * the queue of waiting callers. The object of a completed Future must be recycled into this Pool even if the caller
+	 * no longer needs it.
+	 *
+	 * @return A Future that completes with an object from this Pool
+	 * @see #obtainAsync(Callback)
+	 */
+	public Future<T> obtainAsync() {
+		return submitWaiter(null);
+	}
+
+	/**
+	 * Obtains an object from this Pool as soon as one is available and passes it to the specified callback, without
+	 * blocking the calling thread. If an object is available right away, or the budget allows creating a new one, the
+	 * callback is called from this method. Otherwise, it is called by the thread that recycles the object or frees the
+	 * budget, after the lock of this Pool has been released. Pending callbacks are served in FIFO order.<br>
+	 * The returned Future can be used to cancel the request while it is pending. The object passed to the callback must
+	 * be recycled into this Pool even if the caller no longer needs it.
+	 *
+	 * @param callback Callback.
+	 * @return A Future that completes with the same object passed to the callback
+	 * @throws NullPointerException if the callback is null
+	 */
+	public Future<T> obtainAsync(Callback<? super T> callback) {
+		if (callback == null) {
+			throw new NullPointerException();
+		}
+		return submitWaiter(callback);
+	}
+
+	/**
+	 * Adds the specified object to this Pool so it can be reused later. If there are callers waiting for an object, the
+	 * object is handed directly to the first of them instead.<br>
+	 * If the specified object is a {@link Poolable} object, its {@link Poolable#reset()} method will be called.
+	 *
+	 * @param object Object to be added.
+	 * @throws IllegalArgumentException if the specified object is null
+	 */
+	@Override
+	public void recycle(T object) {
+		if (object == null) {
+			throw new IllegalArgumentException("The specified object can not be null.");
+		}
+		lock.lock();
+		try {
+			super.recycle(object);
+			serveWaiters();
+		} finally {
+			unlockAndFinishHandOffs();
+		}
+	}
+
+	/**
+	 * Adds the objects stored in the first positions of the specified array to this Pool under a single acquisition of
+	 * the lock. If there are callers waiting for objects, the first objects are handed directly to them instead.<br>
+	 * {@link Poolable} objects are reset before they are added or handed.
+	 * 
+	 * @param objects Array that contains the objects to be added.
+	 * @param n Number of objects.
+	 * @throws IllegalArgumentException if n is negative or greater than the length of the array, or if any of the
+	 *             objects is null. In that case, no object is added
+	 */
+	@Override
+	public void recycleAll(T[] objects, int n) {
+		checkBatchLength(objects.length, n);
+		checkNotNull(objects, 0, n);
+		lock.lock();
+		try {
+			int numHanded = 0;
+			ObtainFuture waiter;
+			while (numHanded < n && (waiter = waiters.peekFirst()) != null && waiter.batch == null) {
+				waiters.pollFirst();
+				T object = objects[numHanded++];
+				if (object instanceof Poolable) {
+					((Poolable) object).reset();
+				}
+				waiter.serve(object);
+			}
+			addPooled(objects, numHanded, n - numHanded);
+			serveWaiters();
+		} finally {
+			unlockAndFinishHandOffs();
+		}
+	}
+
+	/**
+	 * Adds all the specified objects to this Pool under a single acquisition of the lock. If there are callers waiting
+	 * for objects, the first objects are handed directly to them instead.<br>
+	 * {@link Poolable} objects are reset before they are added or handed.
+	 * 
+	 * @param objects Objects to be added.
+	 * @throws IllegalArgumentException if any of the specified objects is null. The objects that precede it are added
+	 */
+	@Override
+	public void recycleAll(Iterable<? extends T> objects) {
+		lock.lock();
+		try {
+			for (T object : objects) {
+				if (object == null) {
+					throw new IllegalArgumentException("The specified object can not be null.");
+				}
+				super.recycle(object);
+				serveWaiters();
+			}
+		} finally {
+			unlockAndFinishHandOffs();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return super.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes all objects from this Pool, leaving it empty. The removed objects no longer count towards the budget.
+	 */
+	@Override
+	public void clear() {
+		trim(0);
+	}
+
+	/**
+	 * Removes objects from this Pool until it holds at most the specified number of objects. The removed objects no
+	 * longer count towards the budget.
+	 *
+	 * @param maxSize Maximum number of objects that will remain in this Pool.
+	 * @throws IllegalArgumentException if maxSize is negative
+	 */
+	@Override
+	public void trim(int maxSize) {
+		lock.lock();
+		try {
+			int sizeBeforeTrim = super.size();
+			super.trim(maxSize);
+			numCreated -= sizeBeforeTrim - super.size();
+			serveWaiters();
+		} finally {
+			unlockAndFinishHandOffs();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of objects this Pool will create.
+	 *
+	 * @return Maximum number of objects
+	 */
+	public int getMaxObjects() {
+		return maxObjects;
+	}
+
+	/**
+	 * Returns the number of objects created by this Pool that have not been removed with {@link #clear()} or
+	 * {@link #trim(int)}.
+	 *
+	 * @return Number of created objects
+	 */
+	public int getNumCreated() {
+		lock.lock();
+		try {
+			return numCreated;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of callers waiting for an object.
+	 *
+	 * @return Number of waiting callers
+	 */
+	public int getNumWaiters() {
+		lock.lock();
+		try {
+			return waiters.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Creates a pending ObtainFuture and adds it to the queue of waiting callers. Must be called while holding the lock.
+	 *
+	 * @param callback Callback of an asynchronous caller, or null if the caller waits synchronously.
+	 * @return ObtainFuture
+	 */
+	private ObtainFuture enqueueWaiter(Callback<? super T> callback) {
+		ObtainFuture future = new ObtainFuture(callback);
+		waiters.addLast(future);
+		return future;
+	}
+
+	/**
+	 * Creates an asynchronous ObtainFuture, adds it to the queue of waiting callers and serves it right away if possible.
+	 *
+	 * @param callback Callback, or null if the caller only needs the Future.
+	 * @return ObtainFuture
+	 */
+	private ObtainFuture submitWaiter(Callback<? super T> callback) {
+		ObtainFuture future;
+		if (callback != null) {
+			future = new ObtainFuture(callback);
+		} else {
+			future = new ObtainFuture(NO_CALLBACK);
+		}
+		lock.lock();
+		try {
+			waiters.addLast(future);
+			serveWaiters();
+		} finally {
+			unlockAndFinishHandOffs();
+		}
+		return future;
+	}
+
+	/**
+	 * Serves the waiting callers in FIFO order while there are pooled objects or free budget. A batch waiter is only
+	 * served when the pooled objects and the free budget cover the whole batch, and the callers behind it keep waiting
+	 * until then. Must be called while holding the lock.
+	 */
+	private void serveWaiters() {
+		ObtainFuture waiter;
+		while ((waiter = waiters.peekFirst()) != null) {
+			if (waiter.batch != null) {
+				if (super.size() + maxObjects - numCreated < waiter.numObjects) {
+					return;
+				}
+				waiters.pollFirst();
+				int numPooled = removePooled(waiter.batch, 0, waiter.numObjects);
+				numCreated += waiter.numObjects - numPooled;
+				waiter.serveBatch(numPooled);
+			} else if (super.size() > 0) {
+				waiters.pollFirst();
+				waiter.serve(super.obtain());
+			} else if (numCreated < maxObjects) {
+				waiters.pollFirst();
+				numCreated++;
+				waiter.serve(null);
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Gives back whatever was handed to the specified synchronous waiter, which gave up waiting. Must be called while
+	 * holding the lock.
+	 *
+	 * @param future ObtainFuture of the waiter.
+	 */
+	private void abandon(ObtainFuture future) {
+		if (!future.done) {
+			waiters.remove(future);
+			return;
+		}
+		if (future.object != null) {
+			super.recycle(future.object);
+		} else {
+			numCreated--;
+		}
+		serveWaiters();
+	}
+
+	/**
+	 * Releases the lock and, unless the current thread still holds it, finishes the pending hand-offs to asynchronous
+	 * callers, so that objects are created and callbacks are called without holding the lock.
+	 */
+	private void unlockAndFinishHandOffs() {
+		boolean hasHandOffs = !handOffs.isEmpty();
+		lock.unlock();
+		if (hasHandOffs && !lock.isHeldByCurrentThread()) {
+			ObtainFuture future;
+			while ((future = pollHandOff()) != null) {
+				future.finish();
+			}
+		}
+	}
+
+	/**
+	 * Removes the first pending hand-off.
+	 *
+	 * @return ObtainFuture of the hand-off, or null if there are no pending hand-offs
+	 */
+	private ObtainFuture pollHandOff() {
+		lock.lock();
+		try {
+			return handOffs.pollFirst();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns true if a caller that needs the specified number of objects has to wait, either because other callers are
+	 * already waiting or because the pooled objects and the free budget do not cover all of them. Must be called while
+	 * holding the lock.
+	 *
+	 * @param numObjects Number of objects.
+	 * @return true if the caller has to wait
+	 */
+	private boolean mustWait(int numObjects) {
+		return !waiters.isEmpty() || super.size() + maxObjects - numCreated < numObjects;
+	}
+
+	/**
+	 * Adds a batch waiter to the queue of waiting callers and waits until it is served. When it is served, the first
+	 * positions of the specified array hold the pooled objects handed to it, and slots of the budget have been reserved
+	 * for the rest of the batch. Must be called while holding the lock.
+	 *
+	 * @param batch Array where the pooled objects will be stored.
+	 * @param numObjects Number of objects of the batch.
+	 * @return Number of pooled objects stored in the array
+	 */
+	private int awaitBatch(Object[] batch, int numObjects) {
+		ObtainFuture future = new ObtainFuture(batch, numObjects);
+		waiters.addLast(future);
+		while (!future.done) {
+			future.condition.awaitUninterruptibly();
+		}
+		return future.numPooled;
+	}
+
+	/**
+	 * Creates the objects of a batch whose budget has already been reserved. If a creation fails, the batch is given
+	 * back before the exception is rethrown: the pooled objects are recycled, the budget reserved for the rest of the
+	 * batch is released, and all the positions of the batch are cleared.
+	 *
+	 * @param batch Array whose first positions hold the pooled objects of the batch.
+	 * @param numPooled Number of pooled objects of the batch.
+	 * @param numObjects Number of objects of the batch.
+	 */
+	@SuppressWarnings("unchecked")
+	private void createBatch(Object[] batch, int numPooled, int numObjects) {
+		boolean created = false;
+		try {
+			for (int i = numPooled; i < numObjects; i++) {
+				batch[i] = newObject();
+			}
+			created = true;
+		} finally {
+			if (!created) {
+				lock.lock();
+				try {
+					for (int i = 0; i < numPooled; i++) {
+						super.recycle((T) batch[i]);
+					}
+					numCreated -= numObjects - numPooled;
+					serveWaiters();
+				} finally {
+					unlockAndFinishHandOffs();
+				}
+				Arrays.fill(batch, 0, numObjects, null);
+			}
+		}
+	}
+
+	/**
+	 * Releases the specified number of reserved slots of the budget that were not used.
+	 * 
+	 * @param numSlots Number of slots.
+	 */
+	private void release(int numSlots) {
+		if (numSlots > 0) {
+			lock.lock();
+			try {
+				numCreated -= numSlots;
+				serveWaiters();
+			} finally {
+				unlockAndFinishHandOffs();
+			}
+		}
+	}
+
+	/**
+	 * Creates a new object for which a slot of the budget has already been reserved. If the creation fails, the slot is
+	 * released and handed to the first waiting caller, if any.
+	 *
+	 * @return New object
+	 */
+	private T createReservedObject() {
+		boolean created = false;
+		try {
+			T object = newObject();
+			created = true;
+			return object;
+		} finally {
+			if (!created) {
+				release(1);
+			}
+		}
+	}
+
+	/**
+	 * Receives the objects obtained with {@link BlockingPool#obtainAsync(Callback)}.
+	 *
+	 * @author Miguel Vicente Linares
+	 *
+	 * @param <T>
+	 */
+	public interface Callback<T> {
+
+		/**
+		 * Called when an object has been obtained.
+		 *
+		 * @param object Object. It must be recycled into the pool when it is no longer needed.
+		 */
+		public void onObtained(T object);
+
+		/**
+		 * Called when a new object was needed and {@link Pool#createObject()} failed.
+		 *
+		 * @param error Exception or error thrown by {@link Pool#createObject()}.
+		 */
+		public void onError(Throwable error);
+
+	}
+
+	/**
+	 * Marks the ObtainFutures of {@link #obtainAsync()}, which are asynchronous but have no callback to call.
+	 */
+	private static final Callback<Object> NO_CALLBACK = new Callback<Object>() {
+
+		@Override
+		public void onObtained(Object object) {
+		}
+
+		@Override
+		public void onError(Throwable error) {
+		}
+	};
+
+	/**
+	 * Future of an object obtained from this Pool. All its state is guarded by the lock of the Pool.<br>
+	 * A synchronous waiter is served with a pooled object, or with null if a slot of the budget has been reserved for it,
+	 * in which case it creates the object itself. An asynchronous waiter is served by the thread that serves it: the
+	 * object is created if needed and the callback is called from {@link #finish()}, outside the lock.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	private class ObtainFuture implements Future<T> {
+
+		private final Condition condition;
+		private final Callback<? super T> callback;
+		private final Object[] batch;
+		private final int numObjects;
+		private int numPooled;
+		private T object;
+		private Throwable failure;
+		private boolean served;
+		private boolean done;
+		private boolean cancelled;
+
+		/**
+		 * Creates a new pending ObtainFuture.
+		 *
+		 * @param callback Callback of an asynchronous waiter, or null if the waiter is synchronous.
+		 */
+		public ObtainFuture(Callback<? super T> callback) {
+			this.condition = lock.newCondition();
+			this.callback = callback;
+			this.batch = null;
+			this.numObjects = 1;
+			this.numPooled = 0;
+			this.object = null;
+			this.failure = null;
+			this.served = false;
+			this.done = false;
+			this.cancelled = false;
+		}
+
+		/**
+		 * Creates a new pending ObtainFuture for a synchronous waiter that needs a batch of objects.
+		 *
+		 * @param batch Array where the pooled objects handed to the waiter will be stored.
+		 * @param numObjects Number of objects of the batch.
+		 */
+		public ObtainFuture(Object[] batch, int numObjects) {
+			this.condition = lock.newCondition();
+			this.callback = null;
+			this.batch = batch;
+			this.numObjects = numObjects;
+			this.numPooled = 0;
+			this.object = null;
+			this.failure = null;
+			this.served = false;
+			this.done = false;
+			this.cancelled = false;
+		}
+
+		/**
+		 * Serves this batch waiter. The pooled objects have already been stored in its array, and slots of the budget have
+		 * been reserved for the rest of the batch. Must be called while holding the lock.
+		 *
+		 * @param numPooled Number of pooled objects stored in the array of the batch.
+		 */
+		void serveBatch(int numPooled) {
+			this.numPooled = numPooled;
+			this.served = true;
+			this.done = true;
+			condition.signalAll();
+		}
+
+		/**
+		 * Serves this ObtainFuture with the specified object, or with a reserved slot of the budget if the object is null.
+		 * Synchronous waiters are woken up. Asynchronous waiters are completed right away if there is nothing else to do,
+		 * or queued as pending hand-offs otherwise. Must be called while holding the lock.
+		 *
+		 * @param object Object, or null if a slot of the budget has been reserved for this waiter.
+		 */
+		void serve(T object) {
+			this.object = object;
+			this.served = true;
+			if (callback == null || (object != null && callback == NO_CALLBACK)) {
+				done = true;
+				condition.signalAll();
+			} else {
+				handOffs.addLast(this);
+			}
+		}
+
+		/**
+		 * Finishes the hand-off to an asynchronous waiter: creates its object if a slot was reserved for it, completes this
+		 * ObtainFuture and calls its callback. Must be called without holding the lock.
+		 */
+		void finish() {
+			T obtained = object;
+			Throwable error = null;
+			if (obtained == null) {
+				try {
+					obtained = newObject();
+				} catch (RuntimeException | Error e) {
+					error = e;
+				}
+			}
+			lock.lock();
+			try {
+				if (error != null) {
+					numCreated--;
+					serveWaiters();
+				}
+				object = obtained;
+				failure = error;
+				done = true;
+				condition.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			if (error != null) {
+				callback.onError(error);
+			} else {
+				callback.onObtained(obtained);
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			lock.lock();
+			try {
+				if (served || cancelled) {
+					return false;
+				}
+				cancelled = true;
+				waiters.remove(this);
+				condition.signalAll();
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public boolean isCancelled() {
+			lock.lock();
+			try {
+				return cancelled;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public boolean isDone() {
+			lock.lock();
+			try {
+				return done || cancelled;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public T get() throws InterruptedException, ExecutionException {
+			lock.lock();
+			try {
+				while (!done && !cancelled) {
+					condition.await();
+				}
+				return getObject();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			long nanos = unit.toNanos(timeout);
+			lock.lock();
+			try {
+				while (!done && !cancelled) {
+					if (nanos <= 0) {
+						throw new TimeoutException();
+					}
+					nanos = condition.awaitNanos(nanos);
+				}
+				return getObject();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Returns the object of this completed ObtainFuture. Must be called while holding the lock.
+		 *
+		 * @return Object
+		 * @throws CancellationException if this ObtainFuture was cancelled
+		 * @throws ExecutionException if the object could not be created
+		 */
+		private T getObject() throws ExecutionException {
+			if (cancelled) {
+				throw new CancellationException();
+			}
+			if (failure != null) {
+				throw new ExecutionException(failure);
+			}
+			return object;
+		}
+
+	}
+
+}
@@ -0,0 +1,334 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This queue is implemented as an unrolled linked list: a linked list of chunks, where each chunk is an array that
+ * holds a fixed number of elements. Elements are offered at the end of the tail chunk and polled from the start of the
+ * head chunk, and chunks that become empty are stored in an internal pool of chunks for later use.<br>
+ * Compared to {@link PooledLinkedQueue}, this queue needs one object per chunk instead of one node per element, and
+ * iterates sequentially through memory. Compared to a circular array, this queue never copies its elements when it
+ * grows, so offering an element takes constant time even for huge queues.<br>
+ * This queue does not allow null objects.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <E>
+ */
+public class ChunkedQueue<E> extends AbstractQueue<E> {
+
+	private final int chunkSize;
+	private Chunk<E> head;
+	private Chunk<E> tail;
+	private int size;
+	private ArrayList<Chunk<E>> chunkPool;
+
+	/**
+	 * Creates a new ChunkedQueue with chunks of 256 elements and 1 pooled chunk.
+	 */
+	public ChunkedQueue() {
+		this(256, 1);
+	}
+
+	/**
+	 * Creates a new ChunkedQueue with chunks of the specified size and 1 pooled chunk.
+	 *
+	 * @param chunkSize Number of elements per chunk.
+	 * @throws IllegalArgumentException if chunkSize is less than 1
+	 */
+	public ChunkedQueue(int chunkSize) {
+		this(chunkSize, 1);
+	}
+
+	/**
+	 * Creates a new ChunkedQueue with chunks of the specified size and the specified initial number of pooled chunks.
+	 *
+	 * @param chunkSize Number of elements per chunk.
+	 * @param initialNumPooledChunks Initial number of pooled chunks.
+	 * @throws IllegalArgumentException if chunkSize is less than 1
+	 */
+	public ChunkedQueue(int chunkSize, int initialNumPooledChunks) {
+		super();
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be greater than 0.");
+		}
+		this.chunkSize = chunkSize;
+		this.head = null;
+		this.tail = null;
+		this.size = 0;
+		this.chunkPool = new ArrayList<>(initialNumPooledChunks);
+		for (int i = 0; i < initialNumPooledChunks; i++) {
+			this.chunkPool.add(new Chunk<E>(chunkSize));
+		}
+	}
+
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+
+		if (tail == null) {
+			head = obtainChunk();
+			tail = head;
+		} else if (tail.end == chunkSize) {
+			Chunk<E> chunk = obtainChunk();
+			tail.next = chunk;
+			tail = chunk;
+		}
+		tail.items[tail.end++] = e;
+		size++;
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		if (size == 0) {
+			return null;
+		}
+		E item = (E) head.items[head.start];
+		head.items[head.start++] = null;
+		size--;
+		if (head.start == head.end) {
+			removeEmptyChunk(head, null);
+		}
+		return item;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E peek() {
+		if (size == 0) {
+			return null;
+		}
+		return (E) head.items[head.start];
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new ChunkedQueueIterator();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all the elements of this queue. All the chunks are stored in the pool of chunks for later use.
+	 */
+	@Override
+	public void clear() {
+		Chunk<E> chunk = head;
+		while (chunk != null) {
+			Chunk<E> nextChunk = chunk.next;
+			recycleChunk(chunk);
+			chunk = nextChunk;
+		}
+		head = null;
+		tail = null;
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of elements per chunk.
+	 *
+	 * @return Number of elements per chunk
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Returns the number of chunks available in the pool of chunks.
+	 *
+	 * @return Number of pooled chunks
+	 */
+	public int getNumPooledChunks() {
+		return chunkPool.size();
+	}
+
+	/**
+	 * Removes the specified empty chunk. If it is the only chunk of this queue, it is kept and its indices are reset, so
+	 * a queue that is repeatedly filled and emptied within one chunk does not touch the pool of chunks.
+	 *
+	 * @param chunk Empty chunk.
+	 * @param previousChunk Chunk that precedes the empty chunk, or null if the empty chunk is the head.
+	 */
+	private void removeEmptyChunk(Chunk<E> chunk, Chunk<E> previousChunk) {
+		if (head == tail) {
+			chunk.start = 0;
+			chunk.end = 0;
+			return;
+		}
+		if (previousChunk == null) {
+			head = chunk.next;
+		} else {
+			previousChunk.next = chunk.next;
+		}
+		if (chunk == tail) {
+			tail = previousChunk;
+		}
+		recycleChunk(chunk);
+	}
+
+	/**
+	 * Returns a chunk from the pool if possible. If the pool is empty, creates a new chunk and returns it.
+	 *
+	 * @return Chunk
+	 */
+	private Chunk<E> obtainChunk() {
+		if (chunkPool.size() == 0) {
+			return new Chunk<E>(chunkSize);
+		}
+		int index = chunkPool.size() - 1;
+		return chunkPool.remove(index);
+	}
+
+	/**
+	 * Resets the specified chunk and stores it in the pool for later use.
+	 *
+	 * @param chunk Chunk.
+	 */
+	private void recycleChunk(Chunk<E> chunk) {
+		chunk.reset();
+		chunkPool.add(chunk);
+	}
+
+	/**
+	 * Chunk.
+	 *
+	 * @author Miguel Vicente Linares
+	 *
+	 * @param <E>
+	 */
+	private static class Chunk<E> {
+
+		private final Object[] items;
+		private int start;
+		private int end;
+		private Chunk<E> next;
+
+		/**
+		 * Creates a new empty Chunk.
+		 *
+		 * @param chunkSize Number of elements of the chunk.
+		 */
+		public Chunk(int chunkSize) {
+			this.items = new Object[chunkSize];
+			reset();
+		}
+
+		/**
+		 * Clears the elements of this Chunk and resets its indices and its next chunk.
+		 */
+		void reset() {
+			Arrays.fill(items, start, end, null);
+			this.start = 0;
+			this.end = 0;
+			this.next = null;
+		}
+
+	}
+
+	/**
+	 * Iterator for ChunkedQueue.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	private class ChunkedQueueIterator implements Iterator<E> {
+
+		private Chunk<E> chunk;
+		private Chunk<E> previousChunk;
+		private int index;
+		private int numRemaining;
+		private boolean allowRemove;
+
+		/**
+		 * Creates a new ChunkedQueueIterator.
+		 */
+		public ChunkedQueueIterator() {
+			this.chunk = head;
+			this.previousChunk = null;
+			this.index = (head == null) ? 0 : head.start;
+			this.numRemaining = size;
+			this.allowRemove = false;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return numRemaining > 0;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (numRemaining == 0) {
+				throw new NoSuchElementException();
+			}
+			if (index == chunk.end) {
+				previousChunk = chunk;
+				chunk = chunk.next;
+				index = chunk.start;
+			}
+			numRemaining--;
+			allowRemove = true;
+			return (E) chunk.items[index++];
+		}
+
+		/**
+		 * Removes the last element returned by this iterator. The elements that follow it in its chunk are shifted one
+		 * position, unless it is the first element of the chunk.
+		 */
+		@Override
+		public void remove() {
+			if (!allowRemove) {
+				throw new IllegalStateException("The next method has not yet been called, or the remove method has " +
+						"already been called after the last call to the next method");
+			}
+			allowRemove = false;
+
+			int removedIndex = index - 1;
+			if (removedIndex == chunk.start) {
+				chunk.items[chunk.start++] = null;
+			} else {
+				System.arraycopy(chunk.items, index, chunk.items, removedIndex, chunk.end - index);
+				chunk.items[--chunk.end] = null;
+				index = removedIndex;
+			}
+			size--;
+			if (chunk.start == chunk.end) {
+				Chunk<E> emptyChunk = chunk;
+				Chunk<E> nextChunk = chunk.next;
+				removeEmptyChunk(emptyChunk, previousChunk);
+				if (nextChunk != null) {
+					chunk = nextChunk;
+					index = nextChunk.start;
+				} else {
+					index = chunk.end;
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,402 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-size ring of mutable events, in the style of the LMAX Disruptor. The ring is filled with events obtained from a
+ * {@link Pool} when it is created, and the same events are reused forever, so passing an event from a producer to a
+ * consumer does not allocate.<br>
+ * Producers claim a sequence with {@link #next()} or {@link #tryNext()}, fill the event returned by {@link #get(long)}
+ * in place and then call {@link #publish(long)}. Any number of producers can claim sequences concurrently. A claimed
+ * event is reset with {@link Pool.Poolable#reset()} before it is returned, so producers always start from a clean
+ * event.<br>
+ * Every {@link Consumer} tracks its own sequence and receives all the published events, in order and in batches. The
+ * ring never overwrites an event that has not been consumed by all of its consumers, so producers wait for the slowest
+ * consumer when the ring is full. How producers and consumers wait is defined by the {@link WaitStrategy} of the ring.
+ * <br>
+ * Consumers should be added before producers start publishing. A consumer added later only receives the events whose
+ * sequences are claimed after it was added.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <T>
+ */
+public class EventRing<T extends Pool.Poolable> {
+
+	private final Object[] events;
+	private final int mask;
+	private final int indexShift;
+	private final AtomicIntegerArray publishedRounds;
+	private final AtomicLong claimSequence;
+	private final WaitStrategy waitStrategy;
+	private volatile AtomicLong[] consumerSequences;
+	private volatile long cachedMinimumSequence;
+
+	/**
+	 * Creates a new EventRing filled with events obtained from the specified pool, that waits with
+	 * {@link WaitStrategy#YIELD}.
+	 *
+	 * @param pool Pool of events.
+	 * @param size Number of events of the ring. Must be a power of two.
+	 * @throws IllegalArgumentException if size is not a power of two
+	 */
+	public EventRing(Pool<? extends T> pool, int size) {
+		this(pool, size, WaitStrategy.YIELD);
+	}
+
+	/**
+	 * Creates a new EventRing filled with events obtained from the specified pool.
+	 *
+	 * @param pool Pool of events.
+	 * @param size Number of events of the ring. Must be a power of two.
+	 * @param waitStrategy Strategy used by producers and consumers to wait.
+	 * @throws IllegalArgumentException if size is not a power of two
+	 * @throws NullPointerException if the pool or the wait strategy is null
+	 */
+	public EventRing(Pool<? extends T> pool, int size, WaitStrategy waitStrategy) {
+		if (size <= 0 || (size & (size - 1)) != 0) {
+			throw new IllegalArgumentException("The size of the ring must be a power of two.");
+		}
+		if (pool == null || waitStrategy == null) {
+			throw new NullPointerException();
+		}
+		this.events = new Object[size];
+		for (int i = 0; i < size; i++) {
+			this.events[i] = pool.obtain();
+		}
+		this.mask = size - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(size);
+		this.publishedRounds = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) {
+			this.publishedRounds.set(i, -1);
+		}
+		this.claimSequence = new AtomicLong(0);
+		this.waitStrategy = waitStrategy;
+		this.consumerSequences = new AtomicLong[0];
+		this.cachedMinimumSequence = 0;
+	}
+
+	/**
+	 * Claims the next sequence of this ring, waiting while the ring is full. The event of the claimed sequence is reset
+	 * and can be filled until {@link #publish(long)} is called.
+	 *
+	 * @return Claimed sequence
+	 */
+	public long next() {
+		int numAttempts = 0;
+		while (true) {
+			long sequence = claimSequence.get();
+			if (!hasCapacity(sequence)) {
+				waitStrategy.idle(numAttempts++);
+			} else if (claimSequence.compareAndSet(sequence, sequence + 1)) {
+				return claim(sequence);
+			}
+		}
+	}
+
+	/**
+	 * Claims the next sequence of this ring if the ring is not full. The event of the claimed sequence is reset and can
+	 * be filled until {@link #publish(long)} is called.
+	 *
+	 * @return Claimed sequence, or -1 if the ring is full
+	 */
+	public long tryNext() {
+		while (true) {
+			long sequence = claimSequence.get();
+			if (!hasCapacity(sequence)) {
+				return -1;
+			}
+			if (claimSequence.compareAndSet(sequence, sequence + 1)) {
+				return claim(sequence);
+			}
+		}
+	}
+
+	/**
+	 * Returns the event of the specified sequence. Producers can modify the event between claiming and publishing its
+	 * sequence. Consumers should not keep a reference to the event after handling it, since it will be reused.
+	 *
+	 * @param sequence Sequence.
+	 * @return Event
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(long sequence) {
+		return (T) events[(int) sequence & mask];
+	}
+
+	/**
+	 * Publishes the event of the specified sequence, which makes it visible to the consumers.
+	 *
+	 * @param sequence Sequence returned by {@link #next()} or {@link #tryNext()}.
+	 */
+	public void publish(long sequence) {
+		publishedRounds.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+	}
+
+	/**
+	 * Adds a new consumer to this ring. The consumer receives the events whose sequences are claimed after this call.
+	 *
+	 * @return New consumer
+	 */
+	public synchronized Consumer addConsumer() {
+		Consumer consumer = new Consumer(claimSequence.get());
+		AtomicLong[] sequences = Arrays.copyOf(consumerSequences, consumerSequences.length + 1);
+		sequences[sequences.length - 1] = consumer.sequence;
+		consumerSequences = sequences;
+		return consumer;
+	}
+
+	/**
+	 * Removes the specified consumer from this ring, so producers no longer wait for it.
+	 *
+	 * @param consumer Consumer.
+	 * @return true if the consumer was removed, false if it did not belong to this ring
+	 */
+	public synchronized boolean removeConsumer(Consumer consumer) {
+		AtomicLong[] sequences = consumerSequences;
+		for (int i = 0; i < sequences.length; i++) {
+			if (sequences[i] == consumer.sequence) {
+				AtomicLong[] newSequences = new AtomicLong[sequences.length - 1];
+				System.arraycopy(sequences, 0, newSequences, 0, i);
+				System.arraycopy(sequences, i + 1, newSequences, i, sequences.length - i - 1);
+				consumerSequences = newSequences;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of consumers of this ring.
+	 *
+	 * @return Number of consumers
+	 */
+	public int getNumConsumers() {
+		return consumerSequences.length;
+	}
+
+	/**
+	 * Returns the number of events of this ring.
+	 *
+	 * @return Number of events
+	 */
+	public int size() {
+		return events.length;
+	}
+
+	/**
+	 * Returns the wait strategy of this ring.
+	 *
+	 * @return WaitStrategy
+	 */
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	/**
+	 * Returns true if the slot of the specified sequence has been consumed by all the consumers.
+	 *
+	 * @param sequence Sequence.
+	 * @return true if the sequence can be claimed
+	 */
+	private boolean hasCapacity(long sequence) {
+		long wrapSequence = sequence - events.length;
+		if (wrapSequence < cachedMinimumSequence) {
+			return true;
+		}
+		long minimumSequence = sequence;
+		AtomicLong[] sequences = consumerSequences;
+		for (int i = 0; i < sequences.length; i++) {
+			minimumSequence = Math.min(minimumSequence, sequences[i].get());
+		}
+		cachedMinimumSequence = minimumSequence;
+		return wrapSequence < minimumSequence;
+	}
+
+	/**
+	 * Resets the event of the specified claimed sequence.
+	 *
+	 * @param sequence Sequence.
+	 * @return The specified sequence
+	 */
+	private long claim(long sequence) {
+		get(sequence).reset();
+		return sequence;
+	}
+
+	/**
+	 * Returns true if the event of the specified sequence has been published.
+	 *
+	 * @param sequence Sequence.
+	 * @return true if the event has been published
+	 */
+	private boolean isPublished(long sequence) {
+		return publishedRounds.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+	}
+
+	/**
+	 * Consumer of an {@link EventRing}. A consumer must only be used by one thread at a time.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	public class Consumer {
+
+		private final AtomicLong sequence;
+
+		/**
+		 * Creates a new Consumer.
+		 *
+		 * @param sequence First sequence to be consumed.
+		 */
+		Consumer(long sequence) {
+			this.sequence = new AtomicLong(sequence);
+		}
+
+		/**
+		 * Passes all the published events that have not been consumed yet to the specified handler, in order, without
+		 * waiting. The slots of the events are released when the whole batch has been handled.<br>
+		 * If the handler throws an exception, the events handled before and the event that caused the exception are
+		 * considered consumed.
+		 *
+		 * @param handler Handler.
+		 * @return Number of consumed events
+		 */
+		public int poll(EventHandler<? super T> handler) {
+			long firstSequence = sequence.get();
+			long endSequence = firstSequence;
+			while (isPublished(endSequence)) {
+				endSequence++;
+			}
+			if (endSequence == firstSequence) {
+				return 0;
+			}
+			long currentSequence = firstSequence;
+			try {
+				for (; currentSequence < endSequence; currentSequence++) {
+					handler.onEvent(get(currentSequence), currentSequence, currentSequence == endSequence - 1);
+				}
+			} finally {
+				sequence.lazySet(Math.min(currentSequence + 1, endSequence));
+			}
+			return (int) (endSequence - firstSequence);
+		}
+
+		/**
+		 * Waits until at least one event has been published, and then passes all the published events that have not been
+		 * consumed yet to the specified handler.
+		 *
+		 * @param handler Handler.
+		 * @return Number of consumed events
+		 * @see #poll(EventHandler)
+		 */
+		public int take(EventHandler<? super T> handler) {
+			int numAttempts = 0;
+			while (!isPublished(sequence.get())) {
+				waitStrategy.idle(numAttempts++);
+			}
+			return poll(handler);
+		}
+
+		/**
+		 * Returns the sequence of the next event that will be consumed by this consumer.
+		 *
+		 * @return Sequence
+		 */
+		public long getSequence() {
+			return sequence.get();
+		}
+
+	}
+
+	/**
+	 * Handles the events consumed by a {@link EventRing.Consumer}.
+	 *
+	 * @author Miguel Vicente Linares
+	 *
+	 * @param <T>
+	 */
+	public interface EventHandler<T> {
+
+		/**
+		 * Called for every consumed event.
+		 *
+		 * @param event Event. It should not be referenced after this method returns.
+		 * @param sequence Sequence of the event.
+		 * @param endOfBatch true if this is the last event of the current batch.
+		 */
+		public void onEvent(T event, long sequence, boolean endOfBatch);
+
+	}
+
+	/**
+	 * Defines how producers wait while the ring is full and how consumers wait while there are no events.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	public enum WaitStrategy {
+
+		/**
+		 * Spins without giving up the CPU. Lowest latency, but burns a full core per waiting thread.
+		 */
+		BUSY_SPIN {
+
+			@Override
+			void idle(int numAttempts) {
+				Platform.onSpinWait();
+			}
+		},
+
+		/**
+		 * Yields the CPU to other threads between attempts.
+		 */
+		YIELD {
+
+			@Override
+			void idle(int numAttempts) {
+				Thread.yield();
+			}
+		},
+
+		/**
+		 * Spins for a few attempts and then parks the thread for a microsecond between attempts. Highest latency, but
+		 * the lowest CPU usage.
+		 */
+		PARK {
+
+			@Override
+			void idle(int numAttempts) {
+				if (numAttempts < 100) {
+					Platform.onSpinWait();
+				} else {
+					LockSupport.parkNanos(1000);
+				}
+			}
+		};
+
+		/**
+		 * Waits before the next attempt.
+		 *
+		 * @param numAttempts Number of attempts made so far.
+		 */
+		abstract void idle(int numAttempts);
+
+	}
+
+}
@@ -0,0 +1,59 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+/**
+ * {@link PoolMonitor} that emits Java Flight Recorder events, so that pool misses and node allocations can be
+ * correlated with GC activity in a recording.<br>
+ * JFR events are only emitted on Java 17 or newer, where this class is replaced by the implementation packaged under
+ * META-INF/versions/17 of the multi-release JAR. On older runtimes, this monitor ignores all notifications and
+ * {@link #isSupported()} returns false.
+ *
+ * @author Miguel Vicente Linares
+ */
+public class JfrPoolMonitor implements PoolMonitor {
+
+	/**
+	 * Creates a new JfrPoolMonitor.
+	 */
+	public JfrPoolMonitor() {
+	}
+
+	/**
+	 * Returns true if this monitor emits JFR events on the running JVM.
+	 *
+	 * @return true if JFR events are supported
+	 */
+	public static boolean isSupported() {
+		return false;
+	}
+
+	@Override
+	public void objectCreated(String poolName, long durationNanos) {
+	}
+
+	@Override
+	public void nodeCreated(String queueName) {
+	}
+
+	@Override
+	public void poolSizeSampled(String poolName, int size) {
+	}
+
+	@Override
+	public void queueSizeSampled(String queueName, int size, int numPooledNodes) {
+	}
+
+}
@@ -14,7 +14,8 @@
  */
 package com.miviclin.collections;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 
 /**
  * A simple object pool. If an object is not needed anymore, it can be stored in the pool instead of being freed by the
@@ -28,7 +29,10 @@ import java.util.ArrayList;
  */
 public abstract class Pool<T> {
 
-	private ArrayList<T> objects;
+	private Object[] objects;
+	private int size;
+	private String name;
+	private PoolMonitor monitor;
 
 	/**
 	 * Creates a new empty Pool with ititial capacity for 10 elements.
@@ -41,9 +45,16 @@ public abstract class Pool<T> {
 	 * Creates a new empty Pool.
 	 * 
 	 * @param initialCapacity Initial capacity.
+	 * @throws IllegalArgumentException if initialCapacity is negative
 	 */
 	public Pool(int initialCapacity) {
-		this.objects = new ArrayList<T>(initialCapacity);
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("initialCapacity can not be negative.");
+		}
+		this.objects = new Object[initialCapacity];
+		this.size = 0;
+		this.name = getClass().getName();
+		this.monitor = null;
 	}
 
 	/**
@@ -53,12 +64,57 @@ public abstract class Pool<T> {
 	 * @return An object from this Pool or a new object if the Pool is empty
 	 * @see #createObject()
 	 */
+	@SuppressWarnings("unchecked")
 	public T obtain() {
-		if (objects.size() > 0) {
-			int index = objects.size() - 1;
-			return objects.remove(index);
+		if (size > 0) {
+			size--;
+			T object = (T) objects[size];
+			objects[size] = null;
+			return object;
+		}
+		return newObject();
+	}
+
+	/**
+	 * Stores the specified number of objects in the first positions of the specified array. The objects are taken from
+	 * this Pool with a single array copy, and new objects are only created for the shortfall.<br>
+	 * The returned objects are removed from this Pool.
+	 * 
+	 * @param dst Array where the objects will be stored.
+	 * @param n Number of objects.
+	 * @throws IllegalArgumentException if n is negative or greater than the length of the array
+	 * @see #obtain()
+	 */
+	public void obtain(T[] dst, int n) {
+		checkBatchLength(dst.length, n);
+		int numPooled = removePooled(dst, 0, n);
+		for (int i = numPooled; i < n; i++) {
+			dst[i] = newObject();
+		}
+	}
+
+	/**
+	 * Adds the specified number of objects to the specified collection. New objects are only created for the shortfall.
+	 * <br>
+	 * The returned objects are removed from this Pool.
+	 * 
+	 * @param dst Collection where the objects will be added.
+	 * @param n Number of objects.
+	 * @throws IllegalArgumentException if n is negative
+	 * @see #obtain()
+	 */
+	@SuppressWarnings("unchecked")
+	public void obtain(Collection<? super T> dst, int n) {
+		checkBatchLength(Integer.MAX_VALUE, n);
+		int numPooled = Math.min(n, size);
+		for (int i = 0; i < numPooled; i++) {
+			size--;
+			dst.add((T) objects[size]);
+			objects[size] = null;
+		}
+		for (int i = numPooled; i < n; i++) {
+			dst.add(newObject());
 		}
-		return createObject();
 	}
 
 	/**
@@ -69,6 +125,22 @@ public abstract class Pool<T> {
 	 */
 	public abstract T createObject();
 
+	/**
+	 * Calls {@link #createObject()} and notifies the monitor of this Pool, if any. Subclasses that override
+	 * {@link #obtain()} should call this method instead of {@link #createObject()} when the pool is empty.
+	 * 
+	 * @return New object
+	 */
+	protected final T newObject() {
+		if (monitor == null) {
+			return createObject();
+		}
+		long startTime = System.nanoTime();
+		T object = createObject();
+		monitor.objectCreated(name, System.nanoTime() - startTime);
+		return object;
+	}
+
 	/**
 	 * Adds the specified object to this Pool so it can be reused later.<br>
 	 * If the specified object is a {@link Poolable} object, its {@link Poolable#reset()} method will be called.
@@ -83,7 +155,59 @@ public abstract class Pool<T> {
 		if (object instanceof Poolable) {
 			((Poolable) object).reset();
 		}
-		objects.add(object);
+		ensureCapacity(size + 1);
+		objects[size++] = object;
+	}
+
+	/**
+	 * Adds all the objects of the specified array to this Pool.
+	 * 
+	 * @param objects Objects to be added.
+	 * @throws IllegalArgumentException if any of the specified objects is null. In that case, no object is added
+	 * @see #recycleAll(Object[], int)
+	 */
+	public void recycleAll(T[] objects) {
+		recycleAll(objects, objects.length);
+	}
+
+	/**
+	 * Adds the objects stored in the first positions of the specified array to this Pool, with a single array copy.<br>
+	 * {@link Poolable} objects are reset before they are added.
+	 * 
+	 * @param objects Array that contains the objects to be added.
+	 * @param n Number of objects.
+	 * @throws IllegalArgumentException if n is negative or greater than the length of the array, or if any of the
+	 *             objects is null. In that case, no object is added
+	 * @see #recycle(Object)
+	 */
+	public void recycleAll(T[] objects, int n) {
+		checkBatchLength(objects.length, n);
+		checkNotNull(objects, 0, n);
+		addPooled(objects, 0, n);
+	}
+
+	/**
+	 * Adds all the specified objects to this Pool.<br>
+	 * {@link Poolable} objects are reset before they are added.
+	 * 
+	 * @param objects Objects to be added.
+	 * @throws IllegalArgumentException if any of the specified objects is null. The objects that precede it are added
+	 * @see #recycle(Object)
+	 */
+	public void recycleAll(Iterable<? extends T> objects) {
+		if (objects instanceof Collection) {
+			ensureCapacity(size + ((Collection<?>) objects).size());
+		}
+		for (T object : objects) {
+			if (object == null) {
+				throw new IllegalArgumentException("The specified object can not be null.");
+			}
+			if (object instanceof Poolable) {
+				((Poolable) object).reset();
+			}
+			ensureCapacity(size + 1);
+			this.objects[size++] = object;
+		}
 	}
 
 	/**
@@ -92,7 +216,7 @@ public abstract class Pool<T> {
 	 * @return Number of objects in this Pool
 	 */
 	public int size() {
-		return objects.size();
+		return size;
 	}
 
 	/**
@@ -104,11 +228,154 @@ public abstract class Pool<T> {
 		return size() == 0;
 	}
 
+	/**
+	 * Removes objects from this Pool until it holds at most the specified number of objects. The objects that have been
+	 * in this Pool for the longest time are removed first.
+	 * 
+	 * @param maxSize Maximum number of objects that will remain in this Pool.
+	 * @throws IllegalArgumentException if maxSize is negative
+	 */
+	public void trim(int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("maxSize can not be negative.");
+		}
+		int numObjectsToRemove = size - maxSize;
+		if (numObjectsToRemove > 0) {
+			System.arraycopy(objects, numObjectsToRemove, objects, 0, maxSize);
+			Arrays.fill(objects, maxSize, size, null);
+			size = maxSize;
+		}
+	}
+
 	/**
 	 * Removes all objects from this Pool, leaving it empty.
 	 */
 	public void clear() {
-		objects.clear();
+		Arrays.fill(objects, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Reports the number of objects in this Pool to its monitor, if any. This method is meant to be called periodically.
+	 */
+	public void reportSize() {
+		if (monitor != null) {
+			monitor.poolSizeSampled(name, size());
+		}
+	}
+
+	/**
+	 * Returns the name of this Pool. The name is passed to the monitor of this Pool. By default, it is the name of the
+	 * class of this Pool.
+	 * 
+	 * @return Name of this Pool
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the name of this Pool.
+	 * 
+	 * @param name New name.
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the monitor of this Pool.
+	 * 
+	 * @return The monitor of this Pool, or null if it has no monitor
+	 */
+	public PoolMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets the monitor that will be notified when this Pool creates new objects. The monitor should be set before this
+	 * Pool is shared with other threads.
+	 * 
+	 * @param monitor New monitor, or null to stop monitoring this Pool.
+	 */
+	public void setMonitor(PoolMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Moves up to the specified number of objects from this Pool to the specified array with a single array copy.
+	 * 
+	 * @param dst Array where the objects will be stored.
+	 * @param offset Position of the array where the first object will be stored.
+	 * @param n Maximum number of objects.
+	 * @return Number of moved objects
+	 */
+	final int removePooled(Object[] dst, int offset, int n) {
+		int numPooled = Math.min(n, size);
+		int start = size - numPooled;
+		System.arraycopy(objects, start, dst, offset, numPooled);
+		Arrays.fill(objects, start, size, null);
+		size = start;
+		return numPooled;
+	}
+
+	/**
+	 * Resets the {@link Poolable} objects of the specified range and adds them to this Pool with a single array copy. The
+	 * objects are not checked for null.
+	 * 
+	 * @param src Array that contains the objects.
+	 * @param offset Position of the first object.
+	 * @param n Number of objects.
+	 */
+	final void addPooled(Object[] src, int offset, int n) {
+		for (int i = offset; i < offset + n; i++) {
+			if (src[i] instanceof Poolable) {
+				((Poolable) src[i]).reset();
+			}
+		}
+		ensureCapacity(size + n);
+		System.arraycopy(src, offset, objects, size, n);
+		size += n;
+	}
+
+	/**
+	 * Throws an IllegalArgumentException if any object of the specified range is null.
+	 * 
+	 * @param objects Array that contains the objects.
+	 * @param offset Position of the first object.
+	 * @param n Number of objects.
+	 */
+	static void checkNotNull(Object[] objects, int offset, int n) {
+		for (int i = offset; i < offset + n; i++) {
+			if (objects[i] == null) {
+				throw new IllegalArgumentException("The specified object can not be null.");
+			}
+		}
+	}
+
+	/**
+	 * Throws an IllegalArgumentException if the specified number of objects is negative or greater than the specified
+	 * length.
+	 * 
+	 * @param length Length of the array.
+	 * @param n Number of objects.
+	 */
+	static void checkBatchLength(int length, int n) {
+		if (n < 0 || n > length) {
+			throw new IllegalArgumentException("The number of objects must be in the range [0, " + length + "].");
+		}
+	}
+
+	/**
+	 * Grows the array of objects, if needed, so it can hold at least the specified number of objects.
+	 * 
+	 * @param minCapacity Minimum capacity.
+	 */
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity > objects.length) {
+			int newCapacity = Math.max(minCapacity, objects.length + (objects.length >> 1) + 1);
+			objects = Arrays.copyOf(objects, newCapacity);
+		}
 	}
 
 	/**
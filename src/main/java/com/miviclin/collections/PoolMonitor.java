@@ -0,0 +1,61 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+/**
+ * Receives notifications about the allocations made by pools and pooled queues. A monitor can be attached to a
+ * {@link Pool} with {@link Pool#setMonitor(PoolMonitor)} and to a {@link PooledLinkedQueue} with
+ * {@link PooledLinkedQueue#setMonitor(PoolMonitor)}. When no monitor is attached, the only cost is a null check on the
+ * allocation path.<br>
+ * Every notification carries the name of the pool or queue, so that allocation spikes can be traced back to the pool
+ * that missed.
+ *
+ * @author Miguel Vicente Linares
+ */
+public interface PoolMonitor {
+
+	/**
+	 * Called when a {@link Pool} is empty and has to create a new object.
+	 *
+	 * @param poolName Name of the pool.
+	 * @param durationNanos Time spent in {@link Pool#createObject()}, in nanoseconds.
+	 */
+	public void objectCreated(String poolName, long durationNanos);
+
+	/**
+	 * Called when a {@link PooledLinkedQueue} has no pooled nodes left and has to create a new node.
+	 *
+	 * @param queueName Name of the queue.
+	 */
+	public void nodeCreated(String queueName);
+
+	/**
+	 * Called from {@link Pool#reportSize()}.
+	 *
+	 * @param poolName Name of the pool.
+	 * @param size Number of objects in the pool.
+	 */
+	public void poolSizeSampled(String poolName, int size);
+
+	/**
+	 * Called from {@link PooledLinkedQueue#reportSize()}.
+	 *
+	 * @param queueName Name of the queue.
+	 * @param size Number of elements in the queue.
+	 * @param numPooledNodes Number of nodes available in the pool of nodes of the queue.
+	 */
+	public void queueSizeSampled(String queueName, int size, int numPooledNodes);
+
+}
@@ -0,0 +1,464 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Central registry of {@link Pool}s that keeps the memory retained by all of them within a global budget.<br>
+ * Pools are registered under the class of the pooled objects, or under a typed {@link Key} when there are several pools
+ * of the same class, together with an estimation of the size in bytes of each pooled object. The registry uses these estimations to compute the bytes retained by every
+ * pool. When the total exceeds the budget, idle objects are trimmed from the least recently used pools first, so hot
+ * pools keep their objects.<br>
+ * A pool is considered used every time it is obtained from the registry with {@link #getPool(Key)} or
+ * {@link #getPool(Class)}, or used through the obtain and recycle methods. The budget is enforced on every call to
+ * {@link #recycle(Object)} and {@link #recycle(Key, Object)}, and whenever {@link #enforceBudget()} is called.<br>
+ * This registry is not thread-safe.
+ *
+ * @author Miguel Vicente Linares
+ */
+public class PoolRegistry {
+
+	private final long budgetBytes;
+	private final long defaultBytesPerObject;
+	private final HashMap<Object, Entry> entriesByKey;
+	private final ArrayList<Entry> entries;
+	private long clock;
+
+	/**
+	 * Creates a new empty PoolRegistry.
+	 *
+	 * @param budgetBytes Maximum number of bytes retained by all the registered pools.
+	 * @param defaultBytesPerObject Estimated size of the objects of the pools created by {@link #getPool(Class)}.
+	 * @throws IllegalArgumentException if budgetBytes or defaultBytesPerObject is negative
+	 */
+	public PoolRegistry(long budgetBytes, long defaultBytesPerObject) {
+		if (budgetBytes < 0 || defaultBytesPerObject < 0) {
+			throw new IllegalArgumentException("The budget and the estimated object size can not be negative.");
+		}
+		this.budgetBytes = budgetBytes;
+		this.defaultBytesPerObject = defaultBytesPerObject;
+		this.entriesByKey = new HashMap<>();
+		this.entries = new ArrayList<>();
+		this.clock = 0;
+	}
+
+	/**
+	 * Registers the specified pool under the specified key. If there was a pool registered under the same key, it is
+	 * replaced.
+	 *
+	 * @param <T> Type of the pooled objects.
+	 * @param key Key.
+	 * @param pool Pool.
+	 * @param bytesPerObject Estimated size in bytes of each object of the pool.
+	 * @throws NullPointerException if the key or the pool is null
+	 * @throws IllegalArgumentException if bytesPerObject is negative
+	 */
+	public <T> void register(Key<T> key, Pool<T> pool, long bytesPerObject) {
+		registerEntry(key, pool, bytesPerObject);
+	}
+
+	/**
+	 * Registers the specified pool under the specified class. If there was a pool registered under the same class, it is
+	 * replaced.
+	 *
+	 * @param <T> Type of the pooled objects.
+	 * @param type Class of the pooled objects.
+	 * @param pool Pool.
+	 * @param bytesPerObject Estimated size in bytes of each object of the pool.
+	 * @throws NullPointerException if the class or the pool is null
+	 * @throws IllegalArgumentException if bytesPerObject is negative
+	 */
+	public <T> void register(Class<T> type, Pool<T> pool, long bytesPerObject) {
+		registerEntry(type, pool, bytesPerObject);
+	}
+
+	/**
+	 * Removes the pool registered under the specified key.
+	 *
+	 * @param <T> Type of the pooled objects.
+	 * @param key Key.
+	 * @return The removed pool, or null if there was no pool registered under the key
+	 */
+	public <T> Pool<T> unregister(Key<T> key) {
+		return removeEntry(key);
+	}
+
+	/**
+	 * Removes the pool registered under the specified class.
+	 *
+	 * @param <T> Type of the pooled objects.
+	 * @param type Class of the pooled objects.
+	 * @return The removed pool, or null if there was no pool registered under the class
+	 */
+	public <T> Pool<T> unregister(Class<T> type) {
+		return removeEntry(type);
+	}
+
+	/**
+	 * Returns the pool registered under the specified key, and marks it as used.
+	 *
+	 * @param <T> Type of the pooled objects.
+	 * @param key Key.
+	 * @return The pool registered under the key, or null if there is no such pool
+	 */
+	public <T> Pool<T> getPool(Key<T> key) {
+		return useEntry(key);
+	}
+
+	/**
+	 * Returns the pool registered under the specified class, and marks it as used. If there is no such pool, a pool that
+	 * creates objects with the public no-argument constructor of the class is registered and returned.
+	 *
+	 * @param <T> Type of the pooled objects.
+	 * @param type Class of the pooled objects.
+	 * @return The pool registered under the class
+	 */
+	public <T> Pool<T> getPool(Class<T> type) {
+		Pool<T> pool = useEntry(type);
+		if (pool == null) {
+			pool = new ReflectivePool<>(type);
+			register(type, pool, defaultBytesPerObject);
+		}
+		return pool;
+	}
+
+	/**
+	 * Obtains an object from the pool registered under the specified class.
+	 *
+	 * @param <T> Type of the pooled objects.
+	 * @param type Class of the pooled objects.
+	 * @return An object from the pool, or a new object if the pool is empty
+	 * @see #getPool(Class)
+	 */
+	public <T> T obtain(Class<T> type) {
+		return getPool(type).obtain();
+	}
+
+	/**
+	 * Obtains an object from the pool registered under the specified key.
+	 *
+	 * @param <T> Type of the pooled objects.
+	 * @param key Key.
+	 * @return An object from the pool, or a new object if the pool is empty
+	 * @throws IllegalArgumentException if there is no pool registered under the key
+	 */
+	public <T> T obtain(Key<T> key) {
+		return getRegisteredPool(key).obtain();
+	}
+
+	/**
+	 * Recycles the specified object into the pool registered under its class, and then enforces the budget. If there is
+	 * no such pool, one is registered as in {@link #getPool(Class)}.
+	 *
+	 * @param <T> Type of the object.
+	 * @param object Object.
+	 * @throws IllegalArgumentException if the object is null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void recycle(T object) {
+		if (object == null) {
+			throw new IllegalArgumentException("The specified object can not be null.");
+		}
+		recycle(getPool((Class<T>) object.getClass()), object);
+	}
+
+	/**
+	 * Recycles the specified object into the pool registered under the specified key, and then enforces the budget.
+	 *
+	 * @param <T> Type of the pooled objects.
+	 * @param key Key.
+	 * @param object Object.
+	 * @throws IllegalArgumentException if the object is null or if there is no pool registered under the key
+	 */
+	public <T> void recycle(Key<T> key, T object) {
+		recycle(getRegisteredPool(key), object);
+	}
+
+	/**
+	 * Trims the least recently used pools until the bytes retained by all the registered pools are within the budget. A
+	 * pool that does not shrink when it is trimmed is skipped, so this method always returns, even if the budget can not
+	 * be met.
+	 */
+	public void enforceBudget() {
+		for (int i = 0; i < entries.size(); i++) {
+			entries.get(i).trimFailed = false;
+		}
+		long retainedBytes = getRetainedBytes();
+		while (retainedBytes > budgetBytes) {
+			Entry leastRecentlyUsed = null;
+			for (int i = 0; i < entries.size(); i++) {
+				Entry entry = entries.get(i);
+				if (!entry.trimFailed && entry.getRetainedBytes() > 0 &&
+						(leastRecentlyUsed == null || entry.lastAccess < leastRecentlyUsed.lastAccess)) {
+					leastRecentlyUsed = entry;
+				}
+			}
+			if (leastRecentlyUsed == null) {
+				return;
+			}
+			long excessBytes = retainedBytes - budgetBytes;
+			long numObjectsToRemove = (excessBytes + leastRecentlyUsed.bytesPerObject - 1) /
+					leastRecentlyUsed.bytesPerObject;
+			int size = leastRecentlyUsed.pool.size();
+			leastRecentlyUsed.pool.trim((int) Math.max(0, size - numObjectsToRemove));
+			long newRetainedBytes = getRetainedBytes();
+			if (newRetainedBytes >= retainedBytes) {
+				leastRecentlyUsed.trimFailed = true;
+			}
+			retainedBytes = newRetainedBytes;
+		}
+	}
+
+	/**
+	 * Registers the specified pool under the specified key, which is either a {@link Key} or a {@link Class}.
+	 *
+	 * @param key Key.
+	 * @param pool Pool.
+	 * @param bytesPerObject Estimated size in bytes of each object of the pool.
+	 */
+	private void registerEntry(Object key, Pool<?> pool, long bytesPerObject) {
+		if (key == null || pool == null) {
+			throw new NullPointerException();
+		}
+		if (bytesPerObject < 0) {
+			throw new IllegalArgumentException("bytesPerObject can not be negative.");
+		}
+		Entry entry = new Entry(pool, bytesPerObject);
+		entry.lastAccess = ++clock;
+		Entry previousEntry = entriesByKey.put(key, entry);
+		if (previousEntry != null) {
+			entries.remove(previousEntry);
+		}
+		entries.add(entry);
+	}
+
+	/**
+	 * Removes the pool registered under the specified key. The typed overloads that call this method guarantee that the
+	 * pool holds objects of type T.
+	 *
+	 * @param key Key.
+	 * @return The removed pool, or null if there was no pool registered under the key
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> Pool<T> removeEntry(Object key) {
+		Entry entry = entriesByKey.remove(key);
+		if (entry == null) {
+			return null;
+		}
+		entries.remove(entry);
+		return (Pool<T>) entry.pool;
+	}
+
+	/**
+	 * Returns the pool registered under the specified key, and marks it as used. The typed overloads that call this
+	 * method guarantee that the pool holds objects of type T.
+	 *
+	 * @param key Key.
+	 * @return The pool registered under the key, or null if there is no such pool
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> Pool<T> useEntry(Object key) {
+		Entry entry = entriesByKey.get(key);
+		if (entry == null) {
+			return null;
+		}
+		entry.lastAccess = ++clock;
+		return (Pool<T>) entry.pool;
+	}
+
+	/**
+	 * Returns the pool registered under the specified key, and marks it as used.
+	 *
+	 * @param key Key.
+	 * @return The pool registered under the key
+	 * @throws IllegalArgumentException if there is no pool registered under the key
+	 */
+	private <T> Pool<T> getRegisteredPool(Key<T> key) {
+		Pool<T> pool = getPool(key);
+		if (pool == null) {
+			throw new IllegalArgumentException("There is no pool registered under the specified key.");
+		}
+		return pool;
+	}
+
+	/**
+	 * Recycles the specified object into the specified registered pool, and then enforces the budget.
+	 *
+	 * @param pool Pool.
+	 * @param object Object.
+	 */
+	private <T> void recycle(Pool<T> pool, T object) {
+		pool.recycle(object);
+		if (getRetainedBytes() > budgetBytes) {
+			enforceBudget();
+		}
+	}
+
+	/**
+	 * Returns the estimated number of bytes retained by all the registered pools.
+	 *
+	 * @return Retained bytes
+	 */
+	public long getRetainedBytes() {
+		long retainedBytes = 0;
+		for (int i = 0; i < entries.size(); i++) {
+			retainedBytes += entries.get(i).getRetainedBytes();
+		}
+		return retainedBytes;
+	}
+
+	/**
+	 * Returns the estimated number of bytes retained by the pool registered under the specified key.
+	 *
+	 * @param key {@link Key} or {@link Class} the pool is registered under.
+	 * @return Retained bytes, or 0 if there is no pool registered under the key
+	 */
+	public long getRetainedBytes(Object key) {
+		Entry entry = entriesByKey.get(key);
+		return (entry == null) ? 0 : entry.getRetainedBytes();
+	}
+
+	/**
+	 * Returns the maximum number of bytes retained by all the registered pools.
+	 *
+	 * @return Budget in bytes
+	 */
+	public long getBudgetBytes() {
+		return budgetBytes;
+	}
+
+	/**
+	 * Returns the number of registered pools.
+	 *
+	 * @return Number of registered pools
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Typed key of a pool registered in a {@link PoolRegistry}. Keys are compared by identity, and their type parameter
+	 * is the type of the pooled objects, so the registry returns a pool of that type without unchecked casts at the call
+	 * site. Keys are meant to be stored in constants and shared by the code that uses the pool.
+	 *
+	 * @author Miguel Vicente Linares
+	 *
+	 * @param <T>
+	 */
+	public static final class Key<T> {
+
+		private final String name;
+
+		/**
+		 * Creates a new Key.
+		 *
+		 * @param name Name of the key, used by {@link #toString()}.
+		 * @throws NullPointerException if the name is null
+		 */
+		public Key(String name) {
+			if (name == null) {
+				throw new NullPointerException();
+			}
+			this.name = name;
+		}
+
+		/**
+		 * Returns the name of this key.
+		 *
+		 * @return Name of this key
+		 */
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+	/**
+	 * Registered pool with its estimated object size and the time of its last use.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	private static class Entry {
+
+		private final Pool<?> pool;
+		private final long bytesPerObject;
+		private long lastAccess;
+		private boolean trimFailed;
+
+		/**
+		 * Creates a new Entry.
+		 *
+		 * @param pool Pool.
+		 * @param bytesPerObject Estimated size in bytes of each object of the pool.
+		 */
+		public Entry(Pool<?> pool, long bytesPerObject) {
+			this.pool = pool;
+			this.bytesPerObject = bytesPerObject;
+			this.lastAccess = 0;
+			this.trimFailed = false;
+		}
+
+		/**
+		 * Returns the estimated number of bytes retained by the pool.
+		 *
+		 * @return Retained bytes
+		 */
+		long getRetainedBytes() {
+			return pool.size() * bytesPerObject;
+		}
+
+	}
+
+	/**
+	 * Pool that creates objects with the public no-argument constructor of their class.
+	 *
+	 * @author Miguel Vicente Linares
+	 *
+	 * @param <T>
+	 */
+	private static class ReflectivePool<T> extends Pool<T> {
+
+		private final Class<T> type;
+
+		/**
+		 * Creates a new ReflectivePool.
+		 *
+		 * @param type Class of the pooled objects.
+		 */
+		public ReflectivePool(Class<T> type) {
+			super();
+			this.type = type;
+			setName(type.getName());
+		}
+
+		@Override
+		public T createObject() {
+			try {
+				return type.getConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("Can not create an instance of " + type.getName(), e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,496 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayList;
+
+/**
+ * Bounded cache that recycles evicted values into a {@link Pool}. When the cache is full, an entry is evicted following
+ * its {@link EvictionPolicy} and its value is recycled into the value pool, so the loader of the next miss can obtain
+ * it from {@link #getValuePool()} instead of creating a new value.<br>
+ * Entries are stored in nodes that are chained in a hash table and linked in access order. Like
+ * {@link PooledLinkedQueue}, this cache holds an internal pool of nodes, so once the cache is full, inserting new
+ * entries reuses the nodes of the evicted ones.<br>
+ * Values replaced by {@link #put(Object, Object)} or removed by {@link #remove(Object)} are returned to the caller and
+ * are not recycled.<br>
+ * This cache does not allow null keys or values. This cache is not thread-safe.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class PooledCache<K, V> {
+
+	private static final int NUM_SAMPLES = 5;
+	private static final int MAX_FREQUENCY = 255;
+	private static final int AGING_PERIOD_FACTOR = 10;
+
+	private final int capacity;
+	private final EvictionPolicy evictionPolicy;
+	private final Pool<V> valuePool;
+	private final Node<K, V>[] table;
+	private final Node<K, V>[] entries;
+	private final ArrayList<Node<K, V>> nodePool;
+	private Node<K, V> eldest;
+	private Node<K, V> youngest;
+	private int size;
+	private int numAccesses;
+	private int randomSeed;
+	private long numEvictions;
+
+	/**
+	 * Creates a new empty PooledCache with LRU eviction.
+	 *
+	 * @param capacity Maximum number of entries.
+	 * @param valuePool Pool that receives the evicted values, or null if evicted values should be discarded.
+	 * @throws IllegalArgumentException if capacity is lower than 1
+	 */
+	public PooledCache(int capacity, Pool<V> valuePool) {
+		this(capacity, valuePool, EvictionPolicy.LRU);
+	}
+
+	/**
+	 * Creates a new empty PooledCache.
+	 *
+	 * @param capacity Maximum number of entries.
+	 * @param valuePool Pool that receives the evicted values, or null if evicted values should be discarded.
+	 * @param evictionPolicy Eviction policy.
+	 * @throws IllegalArgumentException if capacity is lower than 1
+	 * @throws NullPointerException if the eviction policy is null
+	 */
+	@SuppressWarnings("unchecked")
+	public PooledCache(int capacity, Pool<V> valuePool, EvictionPolicy evictionPolicy) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be greater than 0.");
+		}
+		if (evictionPolicy == null) {
+			throw new NullPointerException();
+		}
+		int tableLength = 1;
+		while (tableLength < capacity + capacity / 3) {
+			tableLength <<= 1;
+		}
+		this.capacity = capacity;
+		this.evictionPolicy = evictionPolicy;
+		this.valuePool = valuePool;
+		this.table = new Node[tableLength];
+		this.entries = new Node[capacity];
+		this.nodePool = new ArrayList<>();
+		this.eldest = null;
+		this.youngest = null;
+		this.size = 0;
+		this.numAccesses = 0;
+		this.randomSeed = 0x9E3779B9;
+		this.numEvictions = 0;
+	}
+
+	/**
+	 * Returns the value mapped to the specified key, and records the access for the eviction policy.
+	 *
+	 * @param key Key.
+	 * @return The value mapped to the key, or null if the key is not in this cache
+	 * @throws NullPointerException if the key is null
+	 */
+	public V get(K key) {
+		Node<K, V> node = findNode(key, hash(key));
+		if (node == null) {
+			return null;
+		}
+		recordAccess(node);
+		return node.value;
+	}
+
+	/**
+	 * Returns true if the specified key is in this cache. This method does not record an access.
+	 *
+	 * @param key Key.
+	 * @return true if the key is in this cache
+	 * @throws NullPointerException if the key is null
+	 */
+	public boolean containsKey(K key) {
+		return findNode(key, hash(key)) != null;
+	}
+
+	/**
+	 * Maps the specified value to the specified key. If the key is not in this cache and the cache is full, an entry is
+	 * evicted first and its value is recycled into the value pool.
+	 *
+	 * @param key Key.
+	 * @param value Value.
+	 * @return The value previously mapped to the key, or null if the key was not in this cache
+	 * @throws NullPointerException if the key or the value is null
+	 */
+	public V put(K key, V value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		int hash = hash(key);
+		Node<K, V> node = findNode(key, hash);
+		if (node != null) {
+			V previousValue = node.value;
+			node.value = value;
+			recordAccess(node);
+			return previousValue;
+		}
+		if (size == capacity) {
+			evict();
+		}
+		node = obtainNode();
+		node.key = key;
+		node.value = value;
+		node.hash = hash;
+		node.frequency = 1;
+		int bucket = hash & (table.length - 1);
+		node.nextInBucket = table[bucket];
+		table[bucket] = node;
+		linkYoungest(node);
+		node.index = size;
+		entries[size] = node;
+		size++;
+		return null;
+	}
+
+	/**
+	 * Removes the entry of the specified key. The removed value is returned to the caller instead of being recycled.
+	 *
+	 * @param key Key.
+	 * @return The value mapped to the key, or null if the key was not in this cache
+	 * @throws NullPointerException if the key is null
+	 */
+	public V remove(K key) {
+		Node<K, V> node = findNode(key, hash(key));
+		if (node == null) {
+			return null;
+		}
+		V value = node.value;
+		removeNode(node);
+		return value;
+	}
+
+	/**
+	 * Evicts an entry following the eviction policy of this cache, and recycles its value into the value pool.
+	 *
+	 * @return true if an entry was evicted, false if this cache is empty
+	 */
+	public boolean evict() {
+		if (size == 0) {
+			return false;
+		}
+		Node<K, V> victim = (evictionPolicy == EvictionPolicy.LRU) ? eldest : sampleLeastFrequentlyUsed();
+		V value = victim.value;
+		removeNode(victim);
+		numEvictions++;
+		if (valuePool != null) {
+			valuePool.recycle(value);
+		}
+		return true;
+	}
+
+	/**
+	 * Evicts all the entries of this cache and recycles their values into the value pool.
+	 */
+	public void clear() {
+		while (size > 0) {
+			Node<K, V> node = eldest;
+			V value = node.value;
+			removeNode(node);
+			if (valuePool != null) {
+				valuePool.recycle(value);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries in this cache.
+	 *
+	 * @return Number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the maximum number of entries of this cache.
+	 *
+	 * @return Capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the pool that receives the evicted values. Loaders should obtain new values from this pool.
+	 *
+	 * @return Value pool, or null if evicted values are discarded
+	 */
+	public Pool<V> getValuePool() {
+		return valuePool;
+	}
+
+	/**
+	 * Returns the eviction policy of this cache.
+	 *
+	 * @return EvictionPolicy
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	/**
+	 * Returns the number of entries evicted since this cache was created. Entries removed by {@link #remove(Object)} or
+	 * {@link #clear()} are not counted.
+	 *
+	 * @return Number of evictions
+	 */
+	public long getNumEvictions() {
+		return numEvictions;
+	}
+
+	/**
+	 * Returns the hash of the specified key.
+	 *
+	 * @param key Key.
+	 * @return Hash
+	 * @throws NullPointerException if the key is null
+	 */
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the node of the specified key.
+	 *
+	 * @param key Key.
+	 * @param hash Hash of the key.
+	 * @return Node, or null if the key is not in this cache
+	 */
+	private Node<K, V> findNode(Object key, int hash) {
+		Node<K, V> node = table[hash & (table.length - 1)];
+		while (node != null) {
+			if (node.hash == hash && key.equals(node.key)) {
+				return node;
+			}
+			node = node.nextInBucket;
+		}
+		return null;
+	}
+
+	/**
+	 * Marks the specified node as the most recently used one and increments its frequency.
+	 *
+	 * @param node Node.
+	 */
+	private void recordAccess(Node<K, V> node) {
+		if (node != youngest) {
+			unlinkFromAccessOrder(node);
+			linkYoungest(node);
+		}
+		if (node.frequency < MAX_FREQUENCY) {
+			node.frequency++;
+		}
+		numAccesses++;
+		if (numAccesses >= capacity * AGING_PERIOD_FACTOR) {
+			numAccesses = 0;
+			for (int i = 0; i < size; i++) {
+				entries[i].frequency >>>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Samples a few random entries and returns the one with the lowest frequency.
+	 *
+	 * @return Node
+	 */
+	private Node<K, V> sampleLeastFrequentlyUsed() {
+		if (size <= NUM_SAMPLES) {
+			Node<K, V> victim = entries[0];
+			for (int i = 1; i < size; i++) {
+				if (entries[i].frequency < victim.frequency) {
+					victim = entries[i];
+				}
+			}
+			return victim;
+		}
+		Node<K, V> victim = null;
+		for (int i = 0; i < NUM_SAMPLES; i++) {
+			Node<K, V> candidate = entries[(nextRandom() & Integer.MAX_VALUE) % size];
+			if (victim == null || candidate.frequency < victim.frequency) {
+				victim = candidate;
+			}
+		}
+		return victim;
+	}
+
+	/**
+	 * Returns the next number of the xorshift generator used to sample entries.
+	 *
+	 * @return Random number
+	 */
+	private int nextRandom() {
+		int x = randomSeed;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		randomSeed = x;
+		return x;
+	}
+
+	/**
+	 * Links the specified node as the most recently used one.
+	 *
+	 * @param node Node.
+	 */
+	private void linkYoungest(Node<K, V> node) {
+		node.older = youngest;
+		node.younger = null;
+		if (youngest == null) {
+			eldest = node;
+		} else {
+			youngest.younger = node;
+		}
+		youngest = node;
+	}
+
+	/**
+	 * Unlinks the specified node from the access order list.
+	 *
+	 * @param node Node.
+	 */
+	private void unlinkFromAccessOrder(Node<K, V> node) {
+		if (node.older == null) {
+			eldest = node.younger;
+		} else {
+			node.older.younger = node.younger;
+		}
+		if (node.younger == null) {
+			youngest = node.older;
+		} else {
+			node.younger.older = node.older;
+		}
+	}
+
+	/**
+	 * Removes the specified node from the hash table, the access order list and the entries array, and recycles it.
+	 *
+	 * @param node Node.
+	 */
+	private void removeNode(Node<K, V> node) {
+		int bucket = node.hash & (table.length - 1);
+		if (table[bucket] == node) {
+			table[bucket] = node.nextInBucket;
+		} else {
+			Node<K, V> previousNode = table[bucket];
+			while (previousNode.nextInBucket != node) {
+				previousNode = previousNode.nextInBucket;
+			}
+			previousNode.nextInBucket = node.nextInBucket;
+		}
+		unlinkFromAccessOrder(node);
+		size--;
+		Node<K, V> lastEntry = entries[size];
+		entries[node.index] = lastEntry;
+		lastEntry.index = node.index;
+		entries[size] = null;
+		recycleNode(node);
+	}
+
+	/**
+	 * Returns a node from the pool if possible. If the pool is empty, creates a new node and returns it.
+	 *
+	 * @return Node
+	 */
+	private Node<K, V> obtainNode() {
+		if (nodePool.size() == 0) {
+			return new Node<K, V>();
+		}
+		return nodePool.remove(nodePool.size() - 1);
+	}
+
+	/**
+	 * Resets the specified node and stores it in the pool for later use.
+	 *
+	 * @param node Node.
+	 */
+	private void recycleNode(Node<K, V> node) {
+		node.reset();
+		nodePool.add(node);
+	}
+
+	/**
+	 * Policies used to choose the entry evicted when a {@link PooledCache} is full.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	public enum EvictionPolicy {
+
+		/**
+		 * Evicts the least recently used entry.
+		 */
+		LRU,
+
+		/**
+		 * Samples a few random entries and evicts the least frequently used one among them. Frequencies are halved
+		 * periodically, so entries that were popular in the past eventually become evictable.
+		 */
+		SAMPLED_LFU
+
+	}
+
+	/**
+	 * Entry of the cache.
+	 *
+	 * @author Miguel Vicente Linares
+	 *
+	 * @param <K>
+	 * @param <V>
+	 */
+	private static class Node<K, V> {
+
+		private K key;
+		private V value;
+		private int hash;
+		private int frequency;
+		private int index;
+		private Node<K, V> nextInBucket;
+		private Node<K, V> older;
+		private Node<K, V> younger;
+
+		/**
+		 * Creates a new Node.
+		 */
+		public Node() {
+			reset();
+		}
+
+		/**
+		 * Resets all the fields of this Node.
+		 */
+		void reset() {
+			this.key = null;
+			this.value = null;
+			this.hash = 0;
+			this.frequency = 0;
+			this.index = -1;
+			this.nextInBucket = null;
+			this.older = null;
+			this.younger = null;
+		}
+
+	}
+
+}
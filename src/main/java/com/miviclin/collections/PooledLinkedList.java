@@ -0,0 +1,563 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.AbstractSequentialList;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Doubly linked list that holds an internal pool of nodes. Like {@link PooledLinkedQueue}, this list does not need to
+ * create new nodes if there are nodes available in the pool.<br>
+ * Elements added through {@link #append(Object)}, {@link #prepend(Object)}, {@link #insertAfter(long, Object)} and
+ * {@link #insertBefore(long, Object)} return a handle that identifies the node that holds the element. Handles can be
+ * used later to remove the element or to insert new elements next to it in O(1).<br>
+ * Every handle carries the generation of its node. Each time a node is recycled, its generation is incremented, so a
+ * handle that refers to a removed element is detected as stale instead of silently operating on a recycled node.<br>
+ * This list does not allow null objects.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <E>
+ */
+public class PooledLinkedList<E> extends AbstractSequentialList<E> {
+
+	/**
+	 * Handle value that never refers to a valid node.
+	 */
+	public static final long INVALID_HANDLE = -1L;
+
+	private Node<E> head;
+	private Node<E> tail;
+	private int size;
+	private Node<E>[] nodes;
+	private int numNodes;
+	private ArrayList<Node<E>> nodePool;
+
+	/**
+	 * Creates a new PooledLinkedList with 10 pooled nodes.
+	 */
+	public PooledLinkedList() {
+		this(10);
+	}
+
+	/**
+	 * Creates a new PooledLinkedList with the specified initial number of pooled nodes.
+	 *
+	 * @param initialNumPooledNodes Initial number of pooled nodes.
+	 */
+	@SuppressWarnings("unchecked")
+	public PooledLinkedList(int initialNumPooledNodes) {
+		super();
+		this.head = null;
+		this.tail = null;
+		this.size = 0;
+		this.nodes = new Node[Math.max(initialNumPooledNodes, 1)];
+		this.numNodes = 0;
+		this.nodePool = new ArrayList<>(initialNumPooledNodes);
+		for (int i = 0; i < initialNumPooledNodes; i++) {
+			this.nodePool.add(createNode());
+		}
+	}
+
+	/**
+	 * Appends the specified element to the end of this list.
+	 *
+	 * @param e Element.
+	 * @return Handle of the node that holds the element
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public long append(E e) {
+		return insertNode(e, tail, null);
+	}
+
+	/**
+	 * Inserts the specified element at the beginning of this list.
+	 *
+	 * @param e Element.
+	 * @return Handle of the node that holds the element
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public long prepend(E e) {
+		return insertNode(e, null, head);
+	}
+
+	/**
+	 * Inserts the specified element right after the element identified by the specified handle.
+	 *
+	 * @param handle Handle of an element of this list.
+	 * @param e Element.
+	 * @return Handle of the node that holds the new element
+	 * @throws NullPointerException if the specified element is null
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this list
+	 */
+	public long insertAfter(long handle, E e) {
+		Node<E> node = resolve(handle);
+		return insertNode(e, node, node.nextNode);
+	}
+
+	/**
+	 * Inserts the specified element right before the element identified by the specified handle.
+	 *
+	 * @param handle Handle of an element of this list.
+	 * @param e Element.
+	 * @return Handle of the node that holds the new element
+	 * @throws NullPointerException if the specified element is null
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this list
+	 */
+	public long insertBefore(long handle, E e) {
+		Node<E> node = resolve(handle);
+		return insertNode(e, node.previousNode, node);
+	}
+
+	/**
+	 * Removes the element identified by the specified handle. The node that held the element is recycled and the
+	 * handle becomes stale.
+	 *
+	 * @param handle Handle of an element of this list.
+	 * @return The removed element
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this list
+	 */
+	public E removeByHandle(long handle) {
+		Node<E> node = resolve(handle);
+		E item = node.item;
+		unlinkNode(node);
+		return item;
+	}
+
+	/**
+	 * Returns the element identified by the specified handle.
+	 *
+	 * @param handle Handle of an element of this list.
+	 * @return The element identified by the specified handle
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this list
+	 */
+	public E getByHandle(long handle) {
+		return resolve(handle).item;
+	}
+
+	/**
+	 * Replaces the element identified by the specified handle. The handle remains valid.
+	 *
+	 * @param handle Handle of an element of this list.
+	 * @param e New element.
+	 * @return The previous element
+	 * @throws NullPointerException if the specified element is null
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this list
+	 */
+	public E setByHandle(long handle, E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		Node<E> node = resolve(handle);
+		E previousItem = node.item;
+		node.item = e;
+		return previousItem;
+	}
+
+	/**
+	 * Returns true if the specified handle identifies an element of this list.
+	 *
+	 * @param handle Handle.
+	 * @return true if the handle is valid, false if it is stale or does not belong to this list
+	 */
+	public boolean isValidHandle(long handle) {
+		int index = handleIndex(handle);
+		if (index < 0 || index >= numNodes) {
+			return false;
+		}
+		Node<E> node = nodes[index];
+		return node.linked && node.generation == handleGeneration(handle);
+	}
+
+	/**
+	 * Returns the handle of the first element of this list.
+	 *
+	 * @return Handle of the first element, or {@link #INVALID_HANDLE} if this list is empty
+	 */
+	public long firstHandle() {
+		return handleOf(head);
+	}
+
+	/**
+	 * Returns the handle of the last element of this list.
+	 *
+	 * @return Handle of the last element, or {@link #INVALID_HANDLE} if this list is empty
+	 */
+	public long lastHandle() {
+		return handleOf(tail);
+	}
+
+	/**
+	 * Returns the handle of the element that follows the element identified by the specified handle.
+	 *
+	 * @param handle Handle of an element of this list.
+	 * @return Handle of the next element, or {@link #INVALID_HANDLE} if the specified handle identifies the last element
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this list
+	 */
+	public long nextHandle(long handle) {
+		return handleOf(resolve(handle).nextNode);
+	}
+
+	/**
+	 * Returns the handle of the element that precedes the element identified by the specified handle.
+	 *
+	 * @param handle Handle of an element of this list.
+	 * @return Handle of the previous element, or {@link #INVALID_HANDLE} if the specified handle identifies the first
+	 *         element
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this list
+	 */
+	public long previousHandle(long handle) {
+		return handleOf(resolve(handle).previousNode);
+	}
+
+	@Override
+	public boolean add(E e) {
+		append(e);
+		return true;
+	}
+
+	@Override
+	public ListIterator<E> listIterator(int index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return new PooledLinkedListIterator(index);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		while (head != null) {
+			unlinkNode(head);
+		}
+	}
+
+	/**
+	 * Links a new node holding the specified element between the specified nodes.
+	 *
+	 * @param e Element.
+	 * @param previousNode Node that will precede the new node. Can be null.
+	 * @param nextNode Node that will follow the new node. Can be null.
+	 * @return Handle of the new node
+	 */
+	private long insertNode(E e, Node<E> previousNode, Node<E> nextNode) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+
+		Node<E> node = obtainNode();
+		node.item = e;
+		node.linked = true;
+		node.previousNode = previousNode;
+		node.nextNode = nextNode;
+		if (previousNode == null) {
+			head = node;
+		} else {
+			previousNode.nextNode = node;
+		}
+		if (nextNode == null) {
+			tail = node;
+		} else {
+			nextNode.previousNode = node;
+		}
+		size++;
+		modCount++;
+		return handleOf(node);
+	}
+
+	/**
+	 * Unlinks the specified node from this list and recycles it.
+	 *
+	 * @param node Node.
+	 */
+	private void unlinkNode(Node<E> node) {
+		Node<E> previousNode = node.previousNode;
+		Node<E> nextNode = node.nextNode;
+		if (previousNode == null) {
+			head = nextNode;
+		} else {
+			previousNode.nextNode = nextNode;
+		}
+		if (nextNode == null) {
+			tail = previousNode;
+		} else {
+			nextNode.previousNode = previousNode;
+		}
+		size--;
+		modCount++;
+		recycleNode(node);
+	}
+
+	/**
+	 * Returns the node identified by the specified handle.
+	 *
+	 * @param handle Handle.
+	 * @return Node
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this list
+	 */
+	private Node<E> resolve(long handle) {
+		if (!isValidHandle(handle)) {
+			throw new IllegalArgumentException("The specified handle is stale or does not belong to this list.");
+		}
+		return nodes[handleIndex(handle)];
+	}
+
+	/**
+	 * Returns a node from the pool if possible. If the pool is empty, creates a new node and returns it.
+	 *
+	 * @return Node
+	 */
+	private Node<E> obtainNode() {
+		if (nodePool.size() == 0) {
+			return createNode();
+		}
+		int index = nodePool.size() - 1;
+		return nodePool.remove(index);
+	}
+
+	/**
+	 * Resets the specified node, increments its generation and stores it in the pool for later use.
+	 *
+	 * @param node Node.
+	 */
+	private void recycleNode(Node<E> node) {
+		node.reset();
+		node.generation++;
+		nodePool.add(node);
+	}
+
+	/**
+	 * Creates a new node and registers it in the node table so that handles can be resolved to it.
+	 *
+	 * @return Node
+	 */
+	private Node<E> createNode() {
+		if (numNodes == nodes.length) {
+			@SuppressWarnings("unchecked")
+			Node<E>[] newNodes = new Node[nodes.length * 2];
+			System.arraycopy(nodes, 0, newNodes, 0, numNodes);
+			nodes = newNodes;
+		}
+		Node<E> node = new Node<E>(numNodes);
+		nodes[numNodes] = node;
+		numNodes++;
+		return node;
+	}
+
+	/**
+	 * Returns the handle of the specified node.
+	 *
+	 * @param node Node. Can be null.
+	 * @return Handle of the node, or {@link #INVALID_HANDLE} if the node is null
+	 */
+	private static long handleOf(Node<?> node) {
+		if (node == null) {
+			return INVALID_HANDLE;
+		}
+		return ((long) node.generation << 32) | (node.index & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the node index encoded in the specified handle.
+	 *
+	 * @param handle Handle.
+	 * @return Node index
+	 */
+	private static int handleIndex(long handle) {
+		return (int) handle;
+	}
+
+	/**
+	 * Returns the node generation encoded in the specified handle.
+	 *
+	 * @param handle Handle.
+	 * @return Node generation
+	 */
+	private static int handleGeneration(long handle) {
+		return (int) (handle >>> 32);
+	}
+
+	/**
+	 * Node.
+	 *
+	 * @author Miguel Vicente Linares
+	 *
+	 * @param <E>
+	 */
+	private static class Node<E> {
+
+		private final int index;
+		private int generation;
+		private boolean linked;
+		private E item;
+		private Node<E> nextNode;
+		private Node<E> previousNode;
+
+		/**
+		 * Creates a new Node.
+		 *
+		 * @param index Index of this Node in the node table.
+		 */
+		public Node(int index) {
+			this.index = index;
+			this.generation = 0;
+			reset();
+		}
+
+		/**
+		 * Resets the item, nextNode and previousNode to null and marks this node as not linked.
+		 */
+		void reset() {
+			this.linked = false;
+			this.item = null;
+			this.nextNode = null;
+			this.previousNode = null;
+		}
+
+	}
+
+	/**
+	 * ListIterator for PooledLinkedList. The iterator is fail-fast: if the list is structurally modified after the
+	 * iterator is created, other than through the iterator's own remove or add methods, the iterator throws a
+	 * {@link ConcurrentModificationException} instead of following the links of a node that may have been recycled.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	private class PooledLinkedListIterator implements ListIterator<E> {
+
+		private Node<E> lastReturnedNode;
+		private Node<E> nextNode;
+		private int nextIndex;
+		private int expectedModCount;
+
+		/**
+		 * Creates a new PooledLinkedListIterator positioned before the element at the specified index.
+		 *
+		 * @param index Index of the first element to be returned by {@link #next()}.
+		 */
+		public PooledLinkedListIterator(int index) {
+			this.lastReturnedNode = null;
+			this.nextNode = head;
+			for (int i = 0; i < index; i++) {
+				this.nextNode = this.nextNode.nextNode;
+			}
+			this.nextIndex = index;
+			this.expectedModCount = modCount;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex < size;
+		}
+
+		@Override
+		public E next() {
+			checkForComodification();
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastReturnedNode = nextNode;
+			nextNode = nextNode.nextNode;
+			nextIndex++;
+			return lastReturnedNode.item;
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return nextIndex > 0;
+		}
+
+		@Override
+		public E previous() {
+			checkForComodification();
+			if (!hasPrevious()) {
+				throw new NoSuchElementException();
+			}
+			nextNode = (nextNode == null) ? tail : nextNode.previousNode;
+			lastReturnedNode = nextNode;
+			nextIndex--;
+			return lastReturnedNode.item;
+		}
+
+		@Override
+		public int nextIndex() {
+			return nextIndex;
+		}
+
+		@Override
+		public int previousIndex() {
+			return nextIndex - 1;
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturnedNode == null) {
+				throw new IllegalStateException("The next or previous method has not yet been called, or the remove " +
+						"or add method has already been called after the last call to the next or previous method");
+			}
+			checkForComodification();
+			if (lastReturnedNode == nextNode) {
+				nextNode = nextNode.nextNode;
+			} else {
+				nextIndex--;
+			}
+			unlinkNode(lastReturnedNode);
+			lastReturnedNode = null;
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public void set(E e) {
+			if (lastReturnedNode == null) {
+				throw new IllegalStateException("The next or previous method has not yet been called, or the remove " +
+						"or add method has already been called after the last call to the next or previous method");
+			}
+			if (e == null) {
+				throw new NullPointerException();
+			}
+			checkForComodification();
+			lastReturnedNode.item = e;
+		}
+
+		@Override
+		public void add(E e) {
+			checkForComodification();
+			Node<E> previousNode = (nextNode == null) ? tail : nextNode.previousNode;
+			insertNode(e, previousNode, nextNode);
+			nextIndex++;
+			lastReturnedNode = null;
+			expectedModCount = modCount;
+		}
+
+		/**
+		 * Throws a ConcurrentModificationException if the list has been structurally modified since this iterator was
+		 * created or last modified it.
+		 */
+		private void checkForComodification() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+	}
+
+}
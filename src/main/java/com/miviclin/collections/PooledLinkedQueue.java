@@ -14,6 +14,11 @@
  */
 package com.miviclin.collections;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.AbstractQueue;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -24,6 +29,8 @@ import java.util.Iterator;
  * queue and a LinkedList is that this queue has a pool of nodes, so it does not need to create new nodes if there are
  * nodes available in the pool. This collection may be useful in applications such as games, where preventing the
  * garbage collector from being triggered while the game is running is usually required.<br>
+ * Optionally, this queue can keep an index of its elements, so that {@link #contains(Object)} and
+ * {@link #remove(Object)} run in constant time instead of traversing the queue. See {@link IndexMode}.<br>
  * This queue does not allow null objects.
  * 
  * @author Miguel Vicente Linares
@@ -32,10 +39,25 @@ import java.util.Iterator;
  */
 public class PooledLinkedQueue<E> extends AbstractQueue<E> {
 
+	/**
+	 * Size in bytes of the direct buffer used by {@link #writeTo(WritableByteChannel, Codec)} and
+	 * {@link #readFrom(ReadableByteChannel, Codec)}. Encoded elements can not be larger than this size minus 4 bytes.
+	 */
+	public static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+	private static final float DEFAULT_INDEX_LOAD_FACTOR = 0.5f;
+
+	private final IndexMode indexMode;
+	private final float indexLoadFactor;
+	private IndexedNode<E>[] index;
+	private int indexSize;
 	private Node<E> head;
 	private Node<E> tail;
 	private int size;
 	private ArrayList<Node<E>> nodePool;
+	private ByteBuffer transferBuffer;
+	private String name;
+	private PoolMonitor monitor;
 
 	/**
 	 * Creates a new PooledLinkedQueue with 10 pooled nodes.
@@ -50,14 +72,61 @@ public class PooledLinkedQueue<E> extends AbstractQueue<E> {
 	 * @param initialNumPooledNodes Initial number of pooled nodes.
 	 */
 	public PooledLinkedQueue(int initialNumPooledNodes) {
+		this(initialNumPooledNodes, IndexMode.NONE, DEFAULT_INDEX_LOAD_FACTOR);
+	}
+
+	/**
+	 * Creates a new PooledLinkedQueue with the specified initial number of pooled nodes and the specified index mode. The
+	 * index has a load factor of 0.5.
+	 * 
+	 * @param initialNumPooledNodes Initial number of pooled nodes.
+	 * @param indexMode Index mode.
+	 */
+	public PooledLinkedQueue(int initialNumPooledNodes, IndexMode indexMode) {
+		this(initialNumPooledNodes, indexMode, DEFAULT_INDEX_LOAD_FACTOR);
+	}
+
+	/**
+	 * Creates a new PooledLinkedQueue with the specified initial number of pooled nodes and the specified index mode.
+	 * 
+	 * @param initialNumPooledNodes Initial number of pooled nodes. The index is sized to hold this number of distinct
+	 *            elements without growing.
+	 * @param indexMode Index mode.
+	 * @param indexLoadFactor Maximum ratio of occupied slots in the index before it grows. Lower values use more memory
+	 *            and make lookups faster. Must be in the range (0, 1).
+	 * @throws IllegalArgumentException if indexLoadFactor is out of range
+	 * @throws NullPointerException if indexMode is null
+	 */
+	@SuppressWarnings("unchecked")
+	public PooledLinkedQueue(int initialNumPooledNodes, IndexMode indexMode, float indexLoadFactor) {
 		super();
+		if (indexMode == null) {
+			throw new NullPointerException();
+		}
+		if (!(indexLoadFactor > 0 && indexLoadFactor < 1)) {
+			throw new IllegalArgumentException("indexLoadFactor must be in the range (0, 1).");
+		}
 		this.head = null;
 		this.tail = null;
 		this.size = 0;
+		this.indexMode = indexMode;
+		this.indexLoadFactor = indexLoadFactor;
+		this.indexSize = 0;
+		if (indexMode == IndexMode.NONE) {
+			this.index = null;
+		} else {
+			int indexCapacity = 16;
+			while (indexCapacity * indexLoadFactor < initialNumPooledNodes) {
+				indexCapacity <<= 1;
+			}
+			this.index = new IndexedNode[indexCapacity];
+		}
 		this.nodePool = new ArrayList<>(initialNumPooledNodes);
 		for (int i = 0; i < initialNumPooledNodes; i++) {
-			this.nodePool.add(new Node<E>());
+			this.nodePool.add(newNode());
 		}
+		this.name = getClass().getName();
+		this.monitor = null;
 	}
 
 	/**
@@ -99,6 +168,9 @@ public class PooledLinkedQueue<E> extends AbstractQueue<E> {
 		node.setPreviousNode(tail);
 		tail = node;
 		size++;
+		if (index != null) {
+			addToIndex((IndexedNode<E>) node);
+		}
 		return true;
 	}
 
@@ -135,6 +207,359 @@ public class PooledLinkedQueue<E> extends AbstractQueue<E> {
 		return size;
 	}
 
+	/**
+	 * Returns true if this queue contains the specified element. If this queue is indexed, this method runs in constant
+	 * time, and elements are compared as defined by the {@link IndexMode} of this queue. Otherwise, this queue is
+	 * traversed and elements are compared with equals.
+	 * 
+	 * @param o Element.
+	 * @return true if this queue contains the element
+	 */
+	@Override
+	public boolean contains(Object o) {
+		if (index == null) {
+			return super.contains(o);
+		}
+		return o != null && findIndexSlot(o, hash(o)) >= 0;
+	}
+
+	/**
+	 * Removes the first occurrence of the specified element from this queue. If this queue is indexed, this method runs
+	 * in constant time, and elements are compared as defined by the {@link IndexMode} of this queue. Otherwise, this
+	 * queue is traversed and elements are compared with equals.
+	 * 
+	 * @param o Element.
+	 * @return true if an element was removed
+	 */
+	@Override
+	public boolean remove(Object o) {
+		if (index == null) {
+			return super.remove(o);
+		}
+		if (o == null) {
+			return false;
+		}
+		int slot = findIndexSlot(o, hash(o));
+		if (slot < 0) {
+			return false;
+		}
+		IndexedNode<E> node = index[slot];
+		unlinkNodes(node, node, 1);
+		return true;
+	}
+
+	/**
+	 * Returns the index mode of this queue.
+	 * 
+	 * @return IndexMode
+	 */
+	public IndexMode getIndexMode() {
+		return indexMode;
+	}
+
+	/**
+	 * Removes all the elements of this queue that are contained in the specified collection. The queue is traversed
+	 * once, consecutive removed elements are unlinked together, and their nodes are returned to the pool.
+	 * 
+	 * @param collection Collection containing the elements to be removed.
+	 * @return true if this queue changed as a result of the call
+	 * @throws NullPointerException if the specified collection is null
+	 */
+	@Override
+	public boolean removeAll(final Collection<?> collection) {
+		if (collection == null) {
+			throw new NullPointerException();
+		}
+		return removeMatching(new Filter<E>() {
+
+			@Override
+			public boolean matches(E element) {
+				return collection.contains(element);
+			}
+		});
+	}
+
+	/**
+	 * Removes all the elements of this queue that are not contained in the specified collection. The queue is traversed
+	 * once, consecutive removed elements are unlinked together, and their nodes are returned to the pool.
+	 * 
+	 * @param collection Collection containing the elements to be retained.
+	 * @return true if this queue changed as a result of the call
+	 * @throws NullPointerException if the specified collection is null
+	 */
+	@Override
+	public boolean retainAll(final Collection<?> collection) {
+		if (collection == null) {
+			throw new NullPointerException();
+		}
+		return removeMatching(new Filter<E>() {
+
+			@Override
+			public boolean matches(E element) {
+				return !collection.contains(element);
+			}
+		});
+	}
+
+	/**
+	 * Removes all the elements of this queue that match the specified filter. The filter is called once per element,
+	 * from head to tail. Consecutive matching elements are unlinked together, and their nodes are returned to the pool.
+	 * <br>
+	 * If the filter throws an exception, the elements that matched before the last non-matching element are removed,
+	 * and the queue remains consistent.
+	 * 
+	 * @param filter Filter.
+	 * @return true if any element was removed
+	 * @throws NullPointerException if the specified filter is null
+	 */
+	public boolean removeMatching(Filter<? super E> filter) {
+		if (filter == null) {
+			throw new NullPointerException();
+		}
+		int previousSize = size;
+		Node<E> firstMatchingNode = null;
+		int numMatchingNodes = 0;
+		Node<E> node = head;
+		while (node != null) {
+			Node<E> nextNode = node.getNextNode();
+			if (filter.matches(node.getItem())) {
+				if (firstMatchingNode == null) {
+					firstMatchingNode = node;
+				}
+				numMatchingNodes++;
+			} else if (firstMatchingNode != null) {
+				unlinkNodes(firstMatchingNode, node.getPreviousNode(), numMatchingNodes);
+				firstMatchingNode = null;
+				numMatchingNodes = 0;
+			}
+			node = nextNode;
+		}
+		if (firstMatchingNode != null) {
+			unlinkNodes(firstMatchingNode, tail, numMatchingNodes);
+		}
+		return size != previousSize;
+	}
+
+	/**
+	 * Reports the number of elements and the number of pooled nodes of this queue to its monitor, if any. This method is
+	 * meant to be called periodically.
+	 */
+	public void reportSize() {
+		if (monitor != null) {
+			monitor.queueSizeSampled(name, size, nodePool.size());
+		}
+	}
+
+	/**
+	 * Returns the name of this queue. The name is passed to the monitor of this queue. By default, it is the name of the
+	 * class of this queue.
+	 * 
+	 * @return Name of this queue
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the name of this queue.
+	 * 
+	 * @param name New name.
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the monitor of this queue.
+	 * 
+	 * @return The monitor of this queue, or null if it has no monitor
+	 */
+	public PoolMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets the monitor that will be notified when this queue runs out of pooled nodes and creates new ones.
+	 * 
+	 * @param monitor New monitor, or null to stop monitoring this queue.
+	 */
+	public void setMonitor(PoolMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Writes all the elements of this queue, from head to tail, to the specified channel. Elements are encoded with the
+	 * specified codec into a direct buffer that is reused across calls, and the buffer is written to the channel every
+	 * time it fills up.<br>
+	 * The written data starts with the number of elements and the number of bytes that follow, followed by the size and
+	 * the encoded bytes of each element. It can be read back with {@link #readFrom(ReadableByteChannel, Codec)}.<br>
+	 * The channel is expected to be in blocking mode.
+	 * 
+	 * @param channel Channel.
+	 * @param codec Codec used to encode the elements.
+	 * @return Number of written elements
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if an encoded element does not fit in the transfer buffer
+	 * @throws IllegalStateException if the codec does not write the number of bytes reported by
+	 *             {@link Codec#encodedSize(Object)}
+	 */
+	public int writeTo(WritableByteChannel channel, Codec<? super E> codec) throws IOException {
+		ByteBuffer buffer = getTransferBuffer();
+		long numPayloadBytes = 0;
+		for (Node<E> node = head; node != null; node = node.getNextNode()) {
+			int encodedSize = codec.encodedSize(node.getItem());
+			if (encodedSize < 0 || encodedSize > buffer.capacity() - 4) {
+				throw new IllegalArgumentException("Encoded elements must fit in " + (buffer.capacity() - 4) +
+						" bytes.");
+			}
+			numPayloadBytes += encodedSize + 4;
+		}
+		buffer.clear();
+		buffer.putLong(size);
+		buffer.putLong(numPayloadBytes);
+		for (Node<E> node = head; node != null; node = node.getNextNode()) {
+			E item = node.getItem();
+			int encodedSize = codec.encodedSize(item);
+			if (buffer.remaining() < encodedSize + 4) {
+				flush(channel, buffer);
+			}
+			buffer.putInt(encodedSize);
+			int expectedPosition = buffer.position() + encodedSize;
+			codec.encode(item, buffer);
+			if (buffer.position() != expectedPosition) {
+				throw new IllegalStateException("The codec did not write the number of bytes reported by encodedSize.");
+			}
+		}
+		flush(channel, buffer);
+		return size;
+	}
+
+	/**
+	 * Reads elements written by {@link #writeTo(WritableByteChannel, Codec)} from the specified channel and adds them at
+	 * the tail of this queue. Before reading the elements, the pool of nodes is filled once with enough nodes for all of
+	 * them.<br>
+	 * Exactly the bytes written by {@link #writeTo(WritableByteChannel, Codec)} are read, so the channel is left
+	 * positioned right after them and several snapshots can be read back to back from the same channel.<br>
+	 * The channel is expected to be in blocking mode.
+	 * 
+	 * @param channel Channel.
+	 * @param codec Codec used to decode the elements. The buffer passed to {@link Codec#decode(ByteBuffer)} is limited to
+	 *            the bytes of one element.
+	 * @return Number of read elements
+	 * @throws IOException if an I/O error occurs
+	 * @throws EOFException if the channel reaches end-of-stream before all the elements are read
+	 * @throws NullPointerException if the codec decodes an element as null
+	 */
+	public int readFrom(ReadableByteChannel channel, Codec<? extends E> codec) throws IOException {
+		ByteBuffer buffer = getTransferBuffer();
+		buffer.clear();
+		buffer.flip();
+		fill(channel, buffer, 16, 16);
+		long numElements = buffer.getLong();
+		long numUnreadBytes = buffer.getLong();
+		if (numElements < 0 || numElements > Integer.MAX_VALUE) {
+			throw new IOException("Invalid number of elements: " + numElements);
+		}
+		if (numUnreadBytes < numElements * 4) {
+			throw new IOException("Invalid number of bytes: " + numUnreadBytes);
+		}
+		int count = (int) numElements;
+		ensurePooledNodes(count);
+		if (index != null) {
+			ensureIndexCapacity(indexSize + count);
+		}
+		for (int i = 0; i < count; i++) {
+			numUnreadBytes = fill(channel, buffer, 4, numUnreadBytes);
+			int encodedSize = buffer.getInt();
+			if (encodedSize < 0 || encodedSize > buffer.capacity() - 4) {
+				throw new IOException("Invalid element size: " + encodedSize);
+			}
+			numUnreadBytes = fill(channel, buffer, encodedSize, numUnreadBytes);
+			int limit = buffer.limit();
+			int nextPosition = buffer.position() + encodedSize;
+			buffer.limit(nextPosition);
+			E item = codec.decode(buffer);
+			buffer.limit(limit);
+			buffer.position(nextPosition);
+			offer(item);
+		}
+		return count;
+	}
+
+	/**
+	 * Adds new nodes to the pool until it holds at least the specified number of nodes.
+	 * 
+	 * @param numNodes Number of nodes.
+	 */
+	private void ensurePooledNodes(int numNodes) {
+		nodePool.ensureCapacity(numNodes);
+		for (int i = nodePool.size(); i < numNodes; i++) {
+			nodePool.add(newNode());
+		}
+	}
+
+	/**
+	 * Returns the direct buffer used to transfer elements to and from channels, creating it if needed.
+	 * 
+	 * @return Transfer buffer
+	 */
+	private ByteBuffer getTransferBuffer() {
+		if (transferBuffer == null) {
+			transferBuffer = ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE);
+		}
+		return transferBuffer;
+	}
+
+	/**
+	 * Writes the contents of the specified buffer to the specified channel and clears the buffer.
+	 * 
+	 * @param channel Channel.
+	 * @param buffer Buffer in write mode.
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Reads from the specified channel until the specified buffer has at least the specified number of bytes remaining.
+	 * No more than the specified number of unread bytes is read, so bytes that follow the data in the channel are not
+	 * consumed.
+	 * 
+	 * @param channel Channel.
+	 * @param buffer Buffer in read mode.
+	 * @param numBytes Number of bytes.
+	 * @param numUnreadBytes Number of bytes of the data that have not been read from the channel yet.
+	 * @return Number of bytes of the data that have not been read from the channel after this call
+	 * @throws IOException if an I/O error occurs, or if the data ends before the specified number of bytes
+	 * @throws EOFException if the channel reaches end-of-stream before the bytes are read
+	 */
+	private static long fill(ReadableByteChannel channel, ByteBuffer buffer, int numBytes, long numUnreadBytes)
+			throws IOException {
+
+		if (buffer.remaining() >= numBytes) {
+			return numUnreadBytes;
+		}
+		if (buffer.remaining() + numUnreadBytes < numBytes) {
+			throw new IOException("The data ends before the expected number of bytes.");
+		}
+		buffer.compact();
+		buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + numUnreadBytes));
+		while (buffer.position() < numBytes) {
+			int numRead = channel.read(buffer);
+			if (numRead < 0) {
+				throw new EOFException();
+			}
+			numUnreadBytes -= numRead;
+		}
+		buffer.flip();
+		return numUnreadBytes;
+	}
+
 	/**
 	 * Returns a node from the pool if possible. If the pool is empty, creates a new node and returns it.
 	 * 
@@ -142,22 +567,223 @@ public class PooledLinkedQueue<E> extends AbstractQueue<E> {
 	 */
 	private Node<E> obtainNode() {
 		if (nodePool.size() == 0) {
-			return new Node<E>();
+			if (monitor != null) {
+				monitor.nodeCreated(name);
+			}
+			return newNode();
 		}
 		int index = nodePool.size() - 1;
 		return nodePool.remove(index);
 	}
 
 	/**
-	 * Resets the specified node and stores it in the pool for later use.
+	 * Creates a new node. Indexed queues use nodes that can be linked into the index.
+	 * 
+	 * @return Node
+	 */
+	private Node<E> newNode() {
+		return (indexMode == IndexMode.NONE) ? new Node<E>() : new IndexedNode<E>();
+	}
+
+	/**
+	 * Removes the specified node from the index, if any, resets it and stores it in the pool for later use.
 	 * 
 	 * @param node Node.
 	 */
 	private void recycleNode(Node<E> node) {
+		if (index != null) {
+			removeFromIndex((IndexedNode<E>) node);
+		}
 		node.reset();
 		nodePool.add(node);
 	}
 
+	/**
+	 * Returns the hash of the specified element, as defined by the index mode of this queue.
+	 * 
+	 * @param o Element.
+	 * @return Hash
+	 */
+	private int hash(Object o) {
+		int h = (indexMode == IndexMode.IDENTITY) ? System.identityHashCode(o) : o.hashCode();
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns true if the specified elements are the same element, as defined by the index mode of this queue.
+	 * 
+	 * @param a Element.
+	 * @param b Element.
+	 * @return true if the elements match
+	 */
+	private boolean matches(Object a, Object b) {
+		return (indexMode == IndexMode.IDENTITY) ? a == b : a.equals(b);
+	}
+
+	/**
+	 * Returns the slot of the index that holds the oldest node of the specified element.
+	 * 
+	 * @param o Element.
+	 * @param hash Hash of the element.
+	 * @return Slot, or -1 if the element is not in the index
+	 */
+	private int findIndexSlot(Object o, int hash) {
+		int mask = index.length - 1;
+		int slot = hash & mask;
+		IndexedNode<E> node;
+		while ((node = index[slot]) != null) {
+			if (node.hash == hash && matches(node.getItem(), o)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds the specified node to the index. If the index already holds nodes of an element that matches the element of
+	 * the specified node, the node is appended to their chain. Otherwise, the node takes a free slot.
+	 * 
+	 * @param node Node.
+	 */
+	private void addToIndex(IndexedNode<E> node) {
+		int hash = hash(node.getItem());
+		node.hash = hash;
+		int mask = index.length - 1;
+		int slot = hash & mask;
+		IndexedNode<E> firstNode;
+		while ((firstNode = index[slot]) != null) {
+			if (firstNode.hash == hash && matches(firstNode.getItem(), node.getItem())) {
+				IndexedNode<E> lastNode = firstNode.previousEqualNode;
+				lastNode.nextEqualNode = node;
+				node.previousEqualNode = lastNode;
+				firstNode.previousEqualNode = node;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = node;
+		node.previousEqualNode = node;
+		node.nextEqualNode = null;
+		indexSize++;
+		ensureIndexCapacity(indexSize);
+	}
+
+	/**
+	 * Removes the specified node from the index. If it is the only node of its element, its slot is freed with backward
+	 * shift deletion, so the index never holds tombstones.
+	 * 
+	 * @param node Node.
+	 */
+	private void removeFromIndex(IndexedNode<E> node) {
+		int slot = findIndexSlot(node.getItem(), node.hash);
+		IndexedNode<E> firstNode = index[slot];
+		IndexedNode<E> nextNode = node.nextEqualNode;
+		if (node == firstNode) {
+			if (nextNode == null) {
+				freeIndexSlot(slot);
+			} else {
+				nextNode.previousEqualNode = firstNode.previousEqualNode;
+				index[slot] = nextNode;
+			}
+		} else {
+			IndexedNode<E> previousNode = node.previousEqualNode;
+			previousNode.nextEqualNode = nextNode;
+			if (nextNode == null) {
+				firstNode.previousEqualNode = previousNode;
+			} else {
+				nextNode.previousEqualNode = previousNode;
+			}
+		}
+	}
+
+	/**
+	 * Frees the specified slot of the index, shifting back the following nodes of the probe sequence.
+	 * 
+	 * @param slot Slot.
+	 */
+	private void freeIndexSlot(int slot) {
+		int mask = index.length - 1;
+		int hole = slot;
+		int current = slot;
+		while (true) {
+			current = (current + 1) & mask;
+			IndexedNode<E> node = index[current];
+			if (node == null) {
+				break;
+			}
+			int home = node.hash & mask;
+			boolean movable = (hole <= current) ? (home <= hole || home > current) : (home <= hole && home > current);
+			if (movable) {
+				index[hole] = node;
+				hole = current;
+			}
+		}
+		index[hole] = null;
+		indexSize--;
+	}
+
+	/**
+	 * Grows the index, if needed, so that it can hold the specified number of distinct elements within its load factor.
+	 * 
+	 * @param numElements Number of distinct elements.
+	 */
+	@SuppressWarnings("unchecked")
+	private void ensureIndexCapacity(int numElements) {
+		if (numElements <= index.length * indexLoadFactor) {
+			return;
+		}
+		int newCapacity = index.length;
+		while (numElements > newCapacity * indexLoadFactor) {
+			newCapacity <<= 1;
+		}
+		IndexedNode<E>[] oldIndex = index;
+		index = new IndexedNode[newCapacity];
+		int mask = newCapacity - 1;
+		for (int i = 0; i < oldIndex.length; i++) {
+			IndexedNode<E> node = oldIndex[i];
+			if (node != null) {
+				int slot = node.hash & mask;
+				while (index[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				index[slot] = node;
+			}
+		}
+	}
+
+	/**
+	 * Unlinks the specified run of consecutive nodes from this queue and recycles them.
+	 * 
+	 * @param firstNode First node of the run.
+	 * @param lastNode Last node of the run.
+	 * @param numNodes Number of nodes of the run.
+	 */
+	private void unlinkNodes(Node<E> firstNode, Node<E> lastNode, int numNodes) {
+		Node<E> previousNode = firstNode.getPreviousNode();
+		Node<E> nextNode = lastNode.getNextNode();
+		if (previousNode == null) {
+			head = nextNode;
+		} else {
+			previousNode.setNextNode(nextNode);
+		}
+		if (nextNode == null) {
+			tail = previousNode;
+		} else {
+			nextNode.setPreviousNode(previousNode);
+		}
+		size -= numNodes;
+
+		nodePool.ensureCapacity(nodePool.size() + numNodes);
+		Node<E> node = firstNode;
+		for (int i = 0; i < numNodes; i++) {
+			Node<E> followingNode = node.getNextNode();
+			recycleNode(node);
+			node = followingNode;
+		}
+	}
+
 	/**
 	 * Removes the head node and recycles it.
 	 * 
@@ -175,6 +801,90 @@ public class PooledLinkedQueue<E> extends AbstractQueue<E> {
 		return item;
 	}
 
+	/**
+	 * Encodes and decodes the elements of a {@link PooledLinkedQueue} to and from byte buffers.
+	 * 
+	 * @author Miguel Vicente Linares
+	 * 
+	 * @param <E>
+	 * @see PooledLinkedQueue#writeTo(WritableByteChannel, Codec)
+	 * @see PooledLinkedQueue#readFrom(ReadableByteChannel, Codec)
+	 */
+	public interface Codec<E> {
+
+		/**
+		 * Returns the number of bytes {@link #encode(Object, ByteBuffer)} will write for the specified element.
+		 * 
+		 * @param element Element.
+		 * @return Number of bytes
+		 */
+		public int encodedSize(E element);
+
+		/**
+		 * Writes the specified element to the specified buffer, starting at its current position.
+		 * 
+		 * @param element Element.
+		 * @param buffer Buffer with at least {@link #encodedSize(Object)} bytes remaining.
+		 */
+		public void encode(E element, ByteBuffer buffer);
+
+		/**
+		 * Reads an element from the specified buffer. The remaining bytes of the buffer are the bytes written by
+		 * {@link #encode(Object, ByteBuffer)} for the element.
+		 * 
+		 * @param buffer Buffer.
+		 * @return Decoded element
+		 */
+		public E decode(ByteBuffer buffer);
+
+	}
+
+	/**
+	 * Index modes of a {@link PooledLinkedQueue}.
+	 * 
+	 * @author Miguel Vicente Linares
+	 */
+	public enum IndexMode {
+
+		/**
+		 * The queue is not indexed. {@link PooledLinkedQueue#contains(Object)} and
+		 * {@link PooledLinkedQueue#remove(Object)} traverse the queue.
+		 */
+		NONE,
+
+		/**
+		 * The queue keeps an index of its elements that compares them by identity (==). Elements do not need to
+		 * implement hashCode or equals.
+		 */
+		IDENTITY,
+
+		/**
+		 * The queue keeps an index of its elements that compares them with equals. The hash code of an element must not
+		 * change while the element is in the queue.
+		 */
+		EQUALITY
+
+	}
+
+	/**
+	 * Selects the elements removed by {@link PooledLinkedQueue#removeMatching(Filter)}.
+	 * 
+	 * @author Miguel Vicente Linares
+	 * 
+	 * @param <E>
+	 */
+	public interface Filter<E> {
+
+		/**
+		 * Returns true if the specified element has to be removed.
+		 * 
+		 * @param element Element.
+		 * @return true if the element matches this filter
+		 */
+		public boolean matches(E element);
+
+	}
+
 	/**
 	 * Node.
 	 * 
@@ -260,6 +970,34 @@ public class PooledLinkedQueue<E> extends AbstractQueue<E> {
 
 	}
 
+	/**
+	 * Node of an indexed queue. The index holds the oldest node of every distinct element, and the nodes of matching
+	 * elements are chained in queue order. The oldest node of a chain points back to the newest one, so nodes can be
+	 * appended to the chain in constant time.
+	 * 
+	 * @author Miguel Vicente Linares
+	 * 
+	 * @param <E>
+	 */
+	private static class IndexedNode<E> extends Node<E> {
+
+		private int hash;
+		private IndexedNode<E> previousEqualNode;
+		private IndexedNode<E> nextEqualNode;
+
+		/**
+		 * Resets the item, the links of the queue and the links of the index.
+		 */
+		@Override
+		void reset() {
+			super.reset();
+			this.hash = 0;
+			this.previousEqualNode = null;
+			this.nextEqualNode = null;
+		}
+
+	}
+
 	/**
 	 * Iterator for PooledLinkedQueue.
 	 * 
@@ -304,13 +1042,9 @@ public class PooledLinkedQueue<E> extends AbstractQueue<E> {
 						"already been called after the last call to the next method");
 			}
 
-			Node<E> previousLastReturnedNode = lastReturnedNode;
-			lastReturnedNode = lastReturnedNode.getPreviousNode();
-			if (nextNode != null) {
-				nextNode.setPreviousNode(lastReturnedNode);
-			}
-			recycleNode(previousLastReturnedNode);
-			size--;
+			Node<E> previousNode = lastReturnedNode.getPreviousNode();
+			unlinkNodes(lastReturnedNode, lastReturnedNode, 1);
+			lastReturnedNode = previousNode;
 			allowRemove = false;
 		}
 	}
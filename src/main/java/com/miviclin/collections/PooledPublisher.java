@@ -0,0 +1,406 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publisher with backpressure that buffers items in {@link PooledLinkedQueue}s. Every subscriber gets its own bounded
+ * buffer, whose nodes are allocated when the subscriber subscribes and recycled as items are delivered, so publishing
+ * does not allocate.<br>
+ * Subscribers signal demand with {@link Subscription#request(long)}. Buffered items are delivered in batches of up to
+ * the outstanding demand every time an item is offered or more demand is requested. If the buffer of any subscriber is
+ * full, {@link #offer(Object)} rejects the item, so slow subscribers push back on the producer instead of growing the
+ * heap.<br>
+ * {@link Subscriber} and {@link Subscription} mirror the interfaces of the same name in
+ * {@code java.util.concurrent.Flow}, so they can be bridged to other reactive libraries with thin adapters.<br>
+ * This publisher is thread-safe. Subscriber methods are called by the thread that offers the item or requests the
+ * demand, while holding the internal lock of this publisher, so they must not block.<br>
+ * This publisher does not allow null objects.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <E>
+ */
+public class PooledPublisher<E> {
+
+	private final int bufferCapacity;
+	private final ReentrantLock lock;
+	private final ArrayList<BufferedSubscription> subscriptions;
+	private boolean closed;
+	private Throwable closingError;
+
+	/**
+	 * Creates a new PooledPublisher with a buffer of 256 items per subscriber.
+	 */
+	public PooledPublisher() {
+		this(256);
+	}
+
+	/**
+	 * Creates a new PooledPublisher.
+	 *
+	 * @param bufferCapacity Maximum number of items buffered per subscriber.
+	 * @throws IllegalArgumentException if bufferCapacity is less than 1
+	 */
+	public PooledPublisher(int bufferCapacity) {
+		if (bufferCapacity < 1) {
+			throw new IllegalArgumentException("bufferCapacity must be greater than 0.");
+		}
+		this.bufferCapacity = bufferCapacity;
+		this.lock = new ReentrantLock();
+		this.subscriptions = new ArrayList<>();
+		this.closed = false;
+		this.closingError = null;
+	}
+
+	/**
+	 * Adds the specified subscriber. The subscriber receives its {@link Subscription} through
+	 * {@link Subscriber#onSubscribe(Subscription)}, and then the items offered from now on, as long as it requests them.
+	 * If this publisher is already closed, the subscriber is completed right away.
+	 *
+	 * @param subscriber Subscriber.
+	 * @throws NullPointerException if the specified subscriber is null
+	 */
+	public void subscribe(Subscriber<? super E> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException();
+		}
+		lock.lock();
+		try {
+			BufferedSubscription subscription = new BufferedSubscription(subscriber);
+			if (!closed) {
+				subscriptions.add(subscription);
+			}
+			subscriber.onSubscribe(subscription);
+			if (closed) {
+				subscription.drain();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Offers the specified item to all subscribers. The item is added to the buffer of every subscriber and delivered to
+	 * the subscribers that have outstanding demand.
+	 *
+	 * @param item Item.
+	 * @return true if the item was accepted, false if the buffer of any subscriber is full
+	 * @throws NullPointerException if the specified item is null
+	 * @throws IllegalStateException if this publisher is closed
+	 */
+	public boolean offer(E item) {
+		if (item == null) {
+			throw new NullPointerException();
+		}
+		lock.lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("This publisher is closed.");
+			}
+			removeCancelledSubscriptions();
+			int numSubscriptions = subscriptions.size();
+			for (int i = 0; i < numSubscriptions; i++) {
+				if (subscriptions.get(i).buffer.size() >= bufferCapacity) {
+					return false;
+				}
+			}
+			for (int i = 0; i < numSubscriptions; i++) {
+				subscriptions.get(i).buffer.offer(item);
+			}
+			for (int i = 0; i < numSubscriptions && i < subscriptions.size(); i++) {
+				subscriptions.get(i).drain();
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes this publisher. Subscribers are completed with {@link Subscriber#onComplete()} once their buffered items
+	 * have been delivered.
+	 */
+	public void close() {
+		close(null);
+	}
+
+	/**
+	 * Closes this publisher with an error. Subscribers receive the error through {@link Subscriber#onError(Throwable)}
+	 * once their buffered items have been delivered.
+	 *
+	 * @param error Error.
+	 * @throws NullPointerException if the specified error is null
+	 */
+	public void closeExceptionally(Throwable error) {
+		if (error == null) {
+			throw new NullPointerException();
+		}
+		close(error);
+	}
+
+	/**
+	 * Returns true if this publisher is closed.
+	 *
+	 * @return true if this publisher is closed, false otherwise
+	 */
+	public boolean isClosed() {
+		lock.lock();
+		try {
+			return closed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of active subscribers.
+	 *
+	 * @return Number of subscribers
+	 */
+	public int getNumSubscribers() {
+		lock.lock();
+		try {
+			removeCancelledSubscriptions();
+			return subscriptions.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of items buffered by any subscriber. This is the number of items the slowest subscriber
+	 * is lagging behind.
+	 *
+	 * @return Maximum number of buffered items
+	 */
+	public int getMaxLag() {
+		lock.lock();
+		try {
+			int maxLag = 0;
+			for (int i = 0; i < subscriptions.size(); i++) {
+				maxLag = Math.max(maxLag, subscriptions.get(i).buffer.size());
+			}
+			return maxLag;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of items buffered per subscriber.
+	 *
+	 * @return Buffer capacity
+	 */
+	public int getBufferCapacity() {
+		return bufferCapacity;
+	}
+
+	/**
+	 * Closes this publisher and completes the subscribers whose buffers are empty.
+	 *
+	 * @param error Error, or null to complete normally.
+	 */
+	private void close(Throwable error) {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			closingError = error;
+			for (int i = 0; i < subscriptions.size(); i++) {
+				subscriptions.get(i).drain();
+			}
+			removeCancelledSubscriptions();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the cancelled and completed subscriptions from the list of subscriptions. Must be called while holding the
+	 * lock.
+	 */
+	private void removeCancelledSubscriptions() {
+		for (int i = subscriptions.size() - 1; i >= 0; i--) {
+			if (subscriptions.get(i).cancelled) {
+				subscriptions.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Receiver of the items of a {@link PooledPublisher}. Mirrors {@code java.util.concurrent.Flow.Subscriber}.
+	 *
+	 * @author Miguel Vicente Linares
+	 *
+	 * @param <T>
+	 */
+	public interface Subscriber<T> {
+
+		/**
+		 * Called before any other method, with the subscription that this subscriber can use to request items.
+		 *
+		 * @param subscription Subscription.
+		 */
+		public void onSubscribe(Subscription subscription);
+
+		/**
+		 * Called with the next item, only if it has been requested.
+		 *
+		 * @param item Item.
+		 */
+		public void onNext(T item);
+
+		/**
+		 * Called when the publisher is closed with an error, or when this subscriber misbehaves. No other method is
+		 * called afterwards.
+		 *
+		 * @param error Error.
+		 */
+		public void onError(Throwable error);
+
+		/**
+		 * Called when the publisher is closed and all buffered items have been delivered. No other method is called
+		 * afterwards.
+		 */
+		public void onComplete();
+
+	}
+
+	/**
+	 * Link between a {@link PooledPublisher} and a {@link Subscriber}. Mirrors
+	 * {@code java.util.concurrent.Flow.Subscription}.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	public interface Subscription {
+
+		/**
+		 * Adds the specified number of items to the outstanding demand of the subscriber. If n is not positive, the
+		 * subscription is cancelled and the subscriber receives an IllegalArgumentException through
+		 * {@link Subscriber#onError(Throwable)}.
+		 *
+		 * @param n Number of items.
+		 */
+		public void request(long n);
+
+		/**
+		 * Stops the delivery of items to the subscriber and discards its buffered items.
+		 */
+		public void cancel();
+
+	}
+
+	/**
+	 * Subscription that buffers items in a PooledLinkedQueue. All its state is guarded by the lock of the publisher.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	private class BufferedSubscription implements Subscription {
+
+		private final Subscriber<? super E> subscriber;
+		private final PooledLinkedQueue<E> buffer;
+		private long demand;
+		private boolean cancelled;
+		private boolean draining;
+
+		/**
+		 * Creates a new BufferedSubscription.
+		 *
+		 * @param subscriber Subscriber.
+		 */
+		public BufferedSubscription(Subscriber<? super E> subscriber) {
+			this.subscriber = subscriber;
+			this.buffer = new PooledLinkedQueue<>(bufferCapacity);
+			this.demand = 0;
+			this.cancelled = false;
+			this.draining = false;
+		}
+
+		@Override
+		public void request(long n) {
+			lock.lock();
+			try {
+				if (cancelled) {
+					return;
+				}
+				if (n <= 0) {
+					cancelled = true;
+					buffer.clear();
+					subscriber.onError(new IllegalArgumentException("The number of requested items must be positive."));
+					return;
+				}
+				demand += n;
+				if (demand < 0) {
+					demand = Long.MAX_VALUE;
+				}
+				drain();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void cancel() {
+			lock.lock();
+			try {
+				cancelled = true;
+				buffer.clear();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Delivers buffered items while there is outstanding demand, and completes the subscriber if the publisher is
+		 * closed and the buffer is empty. Calls made from within the subscriber methods return immediately, and the
+		 * outer call keeps delivering. Must be called while holding the lock.
+		 */
+		void drain() {
+			if (draining) {
+				return;
+			}
+			draining = true;
+			try {
+				while (!cancelled) {
+					long batchSize = Math.min(demand, buffer.size());
+					if (batchSize == 0) {
+						break;
+					}
+					for (long i = 0; i < batchSize && !cancelled; i++) {
+						demand--;
+						subscriber.onNext(buffer.poll());
+					}
+				}
+				if (!cancelled && closed && buffer.isEmpty()) {
+					cancelled = true;
+					if (closingError != null) {
+						subscriber.onError(closingError);
+					} else {
+						subscriber.onComplete();
+					}
+				}
+			} finally {
+				draining = false;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,286 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * A {@link Pool} that lets the garbage collector reclaim idle objects under memory pressure. This pool is useful for
+ * large objects, where running out of memory is worse than creating the object again.<br>
+ * Idle objects are kept in two tiers. The hot tier holds strong references to the most recently recycled objects.
+ * When the hot tier is full, its oldest object is moved to the cold tier, which only holds soft references, so the
+ * garbage collector may reclaim it before throwing an OutOfMemoryError. {@link #obtain()} tries the hot tier first,
+ * then the cold tier, and calls {@link #createObject()} if both are empty.<br>
+ * The number of objects reclaimed by the garbage collector is reported by {@link #getNumReclaimed()}, which can be used
+ * to tune the capacities of the tiers.<br>
+ * Moving an object to the cold tier creates a SoftReference for it. Objects in the hot tier are not wrapped.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <T>
+ */
+public abstract class SoftReferencePool<T> extends Pool<T> {
+
+	private final int hotCapacity;
+	private final int coldCapacity;
+	private ArrayDeque<T> hotObjects;
+	private ArrayDeque<SoftReference<T>> coldObjects;
+	private ReferenceQueue<T> reclaimedObjects;
+	private long numReclaimed;
+
+	/**
+	 * Creates a new empty SoftReferencePool with a hot tier of 16 objects and an unbounded cold tier.
+	 */
+	public SoftReferencePool() {
+		this(16, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new empty SoftReferencePool.
+	 *
+	 * @param hotCapacity Maximum number of objects in the hot tier.
+	 * @param coldCapacity Maximum number of objects in the cold tier. When the cold tier is full, its oldest object is
+	 *            discarded.
+	 * @throws IllegalArgumentException if hotCapacity or coldCapacity is negative
+	 */
+	public SoftReferencePool(int hotCapacity, int coldCapacity) {
+		super(0);
+		if (hotCapacity < 0 || coldCapacity < 0) {
+			throw new IllegalArgumentException("The capacities of the tiers can not be negative.");
+		}
+		this.hotCapacity = hotCapacity;
+		this.coldCapacity = coldCapacity;
+		this.hotObjects = new ArrayDeque<>(Math.min(hotCapacity, 16) + 1);
+		this.coldObjects = new ArrayDeque<>();
+		this.reclaimedObjects = new ReferenceQueue<>();
+		this.numReclaimed = 0;
+	}
+
+	/**
+	 * Retuns an object from the hot tier, or from the cold tier if the hot tier is empty. If both tiers are empty, or
+	 * if all the objects in the cold tier have been reclaimed by the garbage collector, creates and returns a new
+	 * object.<br>
+	 * The returned object is removed from this Pool.
+	 *
+	 * @return An object from this Pool or a new object if the Pool is empty
+	 * @see #createObject()
+	 */
+	@Override
+	public T obtain() {
+		T object = hotObjects.pollFirst();
+		if (object != null) {
+			return object;
+		}
+		SoftReference<T> reference;
+		while ((reference = coldObjects.pollFirst()) != null) {
+			object = reference.get();
+			if (object != null) {
+				return object;
+			}
+		}
+		return newObject();
+	}
+
+	@Override
+	public void obtain(T[] dst, int n) {
+		checkBatchLength(dst.length, n);
+		for (int i = 0; i < n; i++) {
+			dst[i] = obtain();
+		}
+	}
+
+	@Override
+	public void obtain(Collection<? super T> dst, int n) {
+		checkBatchLength(Integer.MAX_VALUE, n);
+		for (int i = 0; i < n; i++) {
+			dst.add(obtain());
+		}
+	}
+
+	/**
+	 * Adds the specified object to the hot tier of this Pool so it can be reused later. If the hot tier is full, its
+	 * oldest object is moved to the cold tier.<br>
+	 * If the specified object is a {@link Poolable} object, its {@link Poolable#reset()} method will be called.
+	 *
+	 * @param object Object to be added.
+	 * @throws IllegalArgumentException if the specified object is null
+	 */
+	@Override
+	public void recycle(T object) {
+		if (object == null) {
+			throw new IllegalArgumentException("The specified object can not be null.");
+		}
+		if (object instanceof Poolable) {
+			((Poolable) object).reset();
+		}
+		hotObjects.addFirst(object);
+		if (hotObjects.size() > hotCapacity) {
+			demote(hotObjects.size() - hotCapacity);
+		}
+	}
+
+	/**
+	 * Adds the objects stored in the first positions of the specified array to the hot tier of this Pool. If the hot tier
+	 * overflows, its oldest objects are moved to the cold tier once all the objects have been added.<br>
+	 * {@link Poolable} objects are reset before they are added.
+	 * 
+	 * @param objects Array that contains the objects to be added.
+	 * @param n Number of objects.
+	 * @throws IllegalArgumentException if n is negative or greater than the length of the array, or if any of the
+	 *             objects is null. In that case, no object is added
+	 */
+	@Override
+	public void recycleAll(T[] objects, int n) {
+		checkBatchLength(objects.length, n);
+		checkNotNull(objects, 0, n);
+		for (int i = 0; i < n; i++) {
+			if (objects[i] instanceof Poolable) {
+				((Poolable) objects[i]).reset();
+			}
+			hotObjects.addFirst(objects[i]);
+		}
+		if (hotObjects.size() > hotCapacity) {
+			demote(hotObjects.size() - hotCapacity);
+		}
+	}
+
+	/**
+	 * Adds all the specified objects to the hot tier of this Pool. If the hot tier overflows, its oldest objects are
+	 * moved to the cold tier once all the objects have been added.<br>
+	 * {@link Poolable} objects are reset before they are added.
+	 * 
+	 * @param objects Objects to be added.
+	 * @throws IllegalArgumentException if any of the specified objects is null. The objects that precede it are added
+	 */
+	@Override
+	public void recycleAll(Iterable<? extends T> objects) {
+		try {
+			for (T object : objects) {
+				if (object == null) {
+					throw new IllegalArgumentException("The specified object can not be null.");
+				}
+				if (object instanceof Poolable) {
+					((Poolable) object).reset();
+				}
+				hotObjects.addFirst(object);
+			}
+		} finally {
+			if (hotObjects.size() > hotCapacity) {
+				demote(hotObjects.size() - hotCapacity);
+			}
+		}
+	}
+
+	/**
+	 * Moves up to the specified number of objects from the hot tier to the cold tier, starting with the oldest ones.
+	 *
+	 * @param numObjects Number of objects.
+	 */
+	public void demote(int numObjects) {
+		for (int i = 0; i < numObjects && !hotObjects.isEmpty(); i++) {
+			coldObjects.addFirst(new SoftReference<>(hotObjects.pollLast(), reclaimedObjects));
+			if (coldObjects.size() > coldCapacity) {
+				coldObjects.pollLast();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of objects in this Pool. The count includes objects of the cold tier that may have been
+	 * reclaimed by the garbage collector but have not been removed yet.
+	 *
+	 * @return Number of objects in this Pool
+	 * @see #expungeReclaimed()
+	 */
+	@Override
+	public int size() {
+		return hotObjects.size() + coldObjects.size();
+	}
+
+	/**
+	 * Returns the number of objects in the hot tier.
+	 *
+	 * @return Number of objects in the hot tier
+	 */
+	public int getHotSize() {
+		return hotObjects.size();
+	}
+
+	/**
+	 * Returns the number of objects in the cold tier. The count includes objects that may have been reclaimed by the
+	 * garbage collector but have not been removed yet.
+	 *
+	 * @return Number of objects in the cold tier
+	 */
+	public int getColdSize() {
+		return coldObjects.size();
+	}
+
+	/**
+	 * Returns the number of objects of the cold tier that have been reclaimed by the garbage collector since this Pool
+	 * was created.
+	 *
+	 * @return Number of reclaimed objects
+	 */
+	public long getNumReclaimed() {
+		while (reclaimedObjects.poll() != null) {
+			numReclaimed++;
+		}
+		return numReclaimed;
+	}
+
+	/**
+	 * Removes from the cold tier all the objects that have been reclaimed by the garbage collector.
+	 */
+	public void expungeReclaimed() {
+		Iterator<SoftReference<T>> iterator = coldObjects.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().get() == null) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes objects from this Pool until it holds at most the specified number of objects. Objects of the cold tier are
+	 * removed before objects of the hot tier, and older objects are removed before newer ones.
+	 *
+	 * @param maxSize Maximum number of objects that will remain in this Pool.
+	 * @throws IllegalArgumentException if maxSize is negative
+	 */
+	@Override
+	public void trim(int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("maxSize can not be negative.");
+		}
+		while (size() > maxSize && !coldObjects.isEmpty()) {
+			coldObjects.pollLast();
+		}
+		while (size() > maxSize) {
+			hotObjects.pollLast();
+		}
+	}
+
+	@Override
+	public void clear() {
+		hotObjects.clear();
+		coldObjects.clear();
+	}
+
+}
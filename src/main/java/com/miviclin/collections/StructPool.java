@@ -0,0 +1,637 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayList;
+
+/**
+ * A pool of structs stored as parallel primitive arrays. The fields of the structs are declared with a {@link Schema},
+ * and every field is stored in its own array, so millions of structs can live in a few arrays that the garbage
+ * collector never has to walk, and bulk updates of a single field traverse contiguous memory.<br>
+ * Structs are identified by long handles. {@link #allocate()} returns the handle of a free slot, and {@link #free(long)}
+ * returns the slot to an internal free list so that it can be reused. Every handle carries the generation of its slot,
+ * which is incremented each time the slot is freed, so a handle that refers to a freed struct is detected as stale
+ * instead of silently accessing a reused slot.<br>
+ * The lower 32 bits of a handle hold the slot index and the upper 32 bits hold the generation. A slot whose generation
+ * wraps around is retired instead of being reused, so a stale handle can never become valid again.
+ *
+ * @author Miguel Vicente Linares
+ */
+public class StructPool {
+
+	/**
+	 * Handle value that never refers to a valid struct.
+	 */
+	public static final long INVALID_HANDLE = -1L;
+
+	/**
+	 * Maximum number of structs this pool can hold. Handles can address any non-negative int slot index, so the limit is
+	 * the largest array length that every JVM can allocate.
+	 */
+	public static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Generation reached by a slot whose generation wrapped around. Slots that reach it are never reused.
+	 */
+	private static final int RETIRED_GENERATION = 0;
+
+	private final Schema schema;
+	private int[][] intFields;
+	private long[][] longFields;
+	private float[][] floatFields;
+	private double[][] doubleFields;
+	private int[] generations;
+	private boolean[] allocated;
+	private int[] freeSlots;
+	private int numFreeSlots;
+	private int numSlots;
+	private int size;
+
+	/**
+	 * Creates a new StructPool with capacity for 64 structs.
+	 *
+	 * @param schema Schema of the structs.
+	 */
+	public StructPool(Schema schema) {
+		this(schema, 64);
+	}
+
+	/**
+	 * Creates a new StructPool.
+	 *
+	 * @param schema Schema of the structs. Fields added to the schema after the pool is created are ignored.
+	 * @param initialCapacity Initial number of structs that can be allocated before the arrays need to grow.
+	 * @throws IllegalArgumentException if initialCapacity is negative or greater than {@link #MAX_CAPACITY}
+	 */
+	public StructPool(Schema schema, int initialCapacity) {
+		if (initialCapacity < 0 || initialCapacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("initialCapacity must be in the range [0, " + MAX_CAPACITY + "].");
+		}
+		int capacity = Math.max(initialCapacity, 1);
+		this.schema = schema;
+		this.intFields = new int[schema.getNumIntFields()][capacity];
+		this.longFields = new long[schema.getNumLongFields()][capacity];
+		this.floatFields = new float[schema.getNumFloatFields()][capacity];
+		this.doubleFields = new double[schema.getNumDoubleFields()][capacity];
+		this.generations = new int[capacity];
+		this.allocated = new boolean[capacity];
+		this.freeSlots = new int[capacity];
+		this.numFreeSlots = 0;
+		this.numSlots = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Allocates a struct and returns its handle. All the fields of the struct are set to 0.
+	 *
+	 * @return Handle of the allocated struct
+	 * @throws IllegalStateException if this pool already holds {@link #MAX_CAPACITY} structs
+	 */
+	public long allocate() {
+		int slot;
+		if (numFreeSlots > 0) {
+			numFreeSlots--;
+			slot = freeSlots[numFreeSlots];
+			clearSlot(slot);
+		} else {
+			if (numSlots == MAX_CAPACITY) {
+				throw new IllegalStateException("This pool can not hold more than " + MAX_CAPACITY + " structs.");
+			}
+			if (numSlots == capacity()) {
+				grow();
+			}
+			slot = numSlots;
+			numSlots++;
+		}
+		allocated[slot] = true;
+		size++;
+		return handleOf(slot);
+	}
+
+	/**
+	 * Frees the struct identified by the specified handle. Its slot is stored in the free list for later reuse and the
+	 * handle becomes stale.
+	 *
+	 * @param handle Handle of the struct.
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public void free(long handle) {
+		int slot = slot(handle);
+		allocated[slot] = false;
+		releaseSlot(slot);
+		size--;
+	}
+
+	/**
+	 * Frees all structs. Every handle returned so far becomes stale.
+	 */
+	public void clear() {
+		numFreeSlots = 0;
+		for (int slot = numSlots - 1; slot >= 0; slot--) {
+			if (allocated[slot]) {
+				allocated[slot] = false;
+				releaseSlot(slot);
+			} else if (generations[slot] != RETIRED_GENERATION) {
+				freeSlots[numFreeSlots] = slot;
+				numFreeSlots++;
+			}
+		}
+		size = 0;
+	}
+
+	/**
+	 * Returns true if the specified handle identifies an allocated struct of this pool.
+	 *
+	 * @param handle Handle.
+	 * @return true if the handle is valid, false if it is stale or does not belong to this pool
+	 */
+	public boolean isValid(long handle) {
+		int slot = (int) handle;
+		return slot >= 0 && slot < numSlots && allocated[slot] && generations[slot] == (int) (handle >>> 32);
+	}
+
+	/**
+	 * Returns the slot index of the struct identified by the specified handle. The slot index can be used to access the
+	 * arrays returned by {@link #getIntArray(int)}, {@link #getLongArray(int)}, {@link #getFloatArray(int)} and
+	 * {@link #getDoubleArray(int)} directly.
+	 *
+	 * @param handle Handle of the struct.
+	 * @return Slot index
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public int slot(long handle) {
+		if (!isValid(handle)) {
+			throw new IllegalArgumentException("The specified handle is stale or does not belong to this pool.");
+		}
+		return (int) handle;
+	}
+
+	/**
+	 * Returns the handle of the struct stored in the specified slot.
+	 *
+	 * @param slot Slot index.
+	 * @return Handle of the struct, or {@link #INVALID_HANDLE} if the slot is not allocated
+	 */
+	public long handleAt(int slot) {
+		if (slot < 0 || slot >= numSlots || !allocated[slot]) {
+			return INVALID_HANDLE;
+		}
+		return handleOf(slot);
+	}
+
+	/**
+	 * Returns true if the specified slot holds an allocated struct.
+	 *
+	 * @param slot Slot index.
+	 * @return true if the slot is allocated, false otherwise
+	 */
+	public boolean isAllocatedSlot(int slot) {
+		return slot >= 0 && slot < numSlots && allocated[slot];
+	}
+
+	/**
+	 * Returns the value of an int field of the specified struct.
+	 *
+	 * @param handle Handle of the struct.
+	 * @param field Index of the field, as returned by {@link Schema#addIntField(String)}.
+	 * @return Value of the field
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public int getInt(long handle, int field) {
+		return intFields[field][slot(handle)];
+	}
+
+	/**
+	 * Sets the value of an int field of the specified struct.
+	 *
+	 * @param handle Handle of the struct.
+	 * @param field Index of the field, as returned by {@link Schema#addIntField(String)}.
+	 * @param value New value.
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public void setInt(long handle, int field, int value) {
+		intFields[field][slot(handle)] = value;
+	}
+
+	/**
+	 * Returns the value of a long field of the specified struct.
+	 *
+	 * @param handle Handle of the struct.
+	 * @param field Index of the field, as returned by {@link Schema#addLongField(String)}.
+	 * @return Value of the field
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public long getLong(long handle, int field) {
+		return longFields[field][slot(handle)];
+	}
+
+	/**
+	 * Sets the value of a long field of the specified struct.
+	 *
+	 * @param handle Handle of the struct.
+	 * @param field Index of the field, as returned by {@link Schema#addLongField(String)}.
+	 * @param value New value.
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public void setLong(long handle, int field, long value) {
+		longFields[field][slot(handle)] = value;
+	}
+
+	/**
+	 * Returns the value of a float field of the specified struct.
+	 *
+	 * @param handle Handle of the struct.
+	 * @param field Index of the field, as returned by {@link Schema#addFloatField(String)}.
+	 * @return Value of the field
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public float getFloat(long handle, int field) {
+		return floatFields[field][slot(handle)];
+	}
+
+	/**
+	 * Sets the value of a float field of the specified struct.
+	 *
+	 * @param handle Handle of the struct.
+	 * @param field Index of the field, as returned by {@link Schema#addFloatField(String)}.
+	 * @param value New value.
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public void setFloat(long handle, int field, float value) {
+		floatFields[field][slot(handle)] = value;
+	}
+
+	/**
+	 * Returns the value of a double field of the specified struct.
+	 *
+	 * @param handle Handle of the struct.
+	 * @param field Index of the field, as returned by {@link Schema#addDoubleField(String)}.
+	 * @return Value of the field
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public double getDouble(long handle, int field) {
+		return doubleFields[field][slot(handle)];
+	}
+
+	/**
+	 * Sets the value of a double field of the specified struct.
+	 *
+	 * @param handle Handle of the struct.
+	 * @param field Index of the field, as returned by {@link Schema#addDoubleField(String)}.
+	 * @param value New value.
+	 * @throws IllegalArgumentException if the specified handle is stale or does not belong to this pool
+	 */
+	public void setDouble(long handle, int field, double value) {
+		doubleFields[field][slot(handle)] = value;
+	}
+
+	/**
+	 * Returns the array that stores the specified int field, indexed by slot. The array is replaced when this pool
+	 * grows, so it should not be kept across calls to {@link #allocate()}.
+	 *
+	 * @param field Index of the field, as returned by {@link Schema#addIntField(String)}.
+	 * @return Array that stores the field
+	 */
+	public int[] getIntArray(int field) {
+		return intFields[field];
+	}
+
+	/**
+	 * Returns the array that stores the specified long field, indexed by slot. The array is replaced when this pool
+	 * grows, so it should not be kept across calls to {@link #allocate()}.
+	 *
+	 * @param field Index of the field, as returned by {@link Schema#addLongField(String)}.
+	 * @return Array that stores the field
+	 */
+	public long[] getLongArray(int field) {
+		return longFields[field];
+	}
+
+	/**
+	 * Returns the array that stores the specified float field, indexed by slot. The array is replaced when this pool
+	 * grows, so it should not be kept across calls to {@link #allocate()}.
+	 *
+	 * @param field Index of the field, as returned by {@link Schema#addFloatField(String)}.
+	 * @return Array that stores the field
+	 */
+	public float[] getFloatArray(int field) {
+		return floatFields[field];
+	}
+
+	/**
+	 * Returns the array that stores the specified double field, indexed by slot. The array is replaced when this pool
+	 * grows, so it should not be kept across calls to {@link #allocate()}.
+	 *
+	 * @param field Index of the field, as returned by {@link Schema#addDoubleField(String)}.
+	 * @return Array that stores the field
+	 */
+	public double[] getDoubleArray(int field) {
+		return doubleFields[field];
+	}
+
+	/**
+	 * Returns the schema of the structs of this pool.
+	 *
+	 * @return Schema
+	 */
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Returns the number of allocated structs.
+	 *
+	 * @return Number of allocated structs
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if there are no allocated structs (size() == 0).
+	 *
+	 * @return true if there are no allocated structs, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of slots that have been used so far. Allocated structs are always stored in slots lower than
+	 * this value, so it is the upper bound for loops over the field arrays.
+	 *
+	 * @return Number of used slots
+	 */
+	public int getNumSlots() {
+		return numSlots;
+	}
+
+	/**
+	 * Returns the number of structs that can be stored before the arrays need to grow.
+	 *
+	 * @return Capacity
+	 */
+	public int capacity() {
+		return allocated.length;
+	}
+
+	/**
+	 * Returns the handle of the specified slot.
+	 *
+	 * @param slot Slot index.
+	 * @return Handle
+	 */
+	private long handleOf(int slot) {
+		return ((long) generations[slot] << 32) | slot;
+	}
+
+	/**
+	 * Increments the generation of the specified freed slot and stores it in the free list. If the generation wraps
+	 * around, the slot is retired instead, since handles from its first generation would otherwise become valid again.
+	 *
+	 * @param slot Slot index.
+	 */
+	private void releaseSlot(int slot) {
+		generations[slot]++;
+		if (generations[slot] == RETIRED_GENERATION) {
+			return;
+		}
+		freeSlots[numFreeSlots] = slot;
+		numFreeSlots++;
+	}
+
+	/**
+	 * Sets the generation of the specified slot. Used by tests to reach a wraparound without freeing the slot 2^32
+	 * times.
+	 *
+	 * @param slot Slot index.
+	 * @param generation Generation.
+	 */
+	void setGeneration(int slot, int generation) {
+		generations[slot] = generation;
+	}
+
+	/**
+	 * Sets all the fields of the specified slot to 0.
+	 *
+	 * @param slot Slot index.
+	 */
+	private void clearSlot(int slot) {
+		for (int i = 0; i < intFields.length; i++) {
+			intFields[i][slot] = 0;
+		}
+		for (int i = 0; i < longFields.length; i++) {
+			longFields[i][slot] = 0;
+		}
+		for (int i = 0; i < floatFields.length; i++) {
+			floatFields[i][slot] = 0;
+		}
+		for (int i = 0; i < doubleFields.length; i++) {
+			doubleFields[i][slot] = 0;
+		}
+	}
+
+	/**
+	 * Doubles the capacity of all the arrays, without exceeding {@link #MAX_CAPACITY}.
+	 */
+	private void grow() {
+		int newCapacity = grownCapacity(capacity());
+		for (int i = 0; i < intFields.length; i++) {
+			int[] newArray = new int[newCapacity];
+			System.arraycopy(intFields[i], 0, newArray, 0, numSlots);
+			intFields[i] = newArray;
+		}
+		for (int i = 0; i < longFields.length; i++) {
+			long[] newArray = new long[newCapacity];
+			System.arraycopy(longFields[i], 0, newArray, 0, numSlots);
+			longFields[i] = newArray;
+		}
+		for (int i = 0; i < floatFields.length; i++) {
+			float[] newArray = new float[newCapacity];
+			System.arraycopy(floatFields[i], 0, newArray, 0, numSlots);
+			floatFields[i] = newArray;
+		}
+		for (int i = 0; i < doubleFields.length; i++) {
+			double[] newArray = new double[newCapacity];
+			System.arraycopy(doubleFields[i], 0, newArray, 0, numSlots);
+			doubleFields[i] = newArray;
+		}
+		int[] newGenerations = new int[newCapacity];
+		System.arraycopy(generations, 0, newGenerations, 0, numSlots);
+		generations = newGenerations;
+		boolean[] newAllocated = new boolean[newCapacity];
+		System.arraycopy(allocated, 0, newAllocated, 0, numSlots);
+		allocated = newAllocated;
+		int[] newFreeSlots = new int[newCapacity];
+		System.arraycopy(freeSlots, 0, newFreeSlots, 0, numFreeSlots);
+		freeSlots = newFreeSlots;
+	}
+
+	/**
+	 * Returns the capacity the arrays grow to from the specified capacity.
+	 *
+	 * @param capacity Current capacity.
+	 * @return Double the specified capacity, or {@link #MAX_CAPACITY} if that is smaller
+	 */
+	static int grownCapacity(int capacity) {
+		return (int) Math.min((long) capacity * 2, MAX_CAPACITY);
+	}
+
+	/**
+	 * Declares the fields of the structs of a {@link StructPool}. Fields are grouped by type, and each field is
+	 * identified by its index within its type.
+	 *
+	 * @author Miguel Vicente Linares
+	 */
+	public static class Schema {
+
+		private ArrayList<String> intFieldNames;
+		private ArrayList<String> longFieldNames;
+		private ArrayList<String> floatFieldNames;
+		private ArrayList<String> doubleFieldNames;
+
+		/**
+		 * Creates a new empty Schema.
+		 */
+		public Schema() {
+			this.intFieldNames = new ArrayList<>();
+			this.longFieldNames = new ArrayList<>();
+			this.floatFieldNames = new ArrayList<>();
+			this.doubleFieldNames = new ArrayList<>();
+		}
+
+		/**
+		 * Adds an int field to this Schema.
+		 *
+		 * @param name Name of the field.
+		 * @return Index of the field
+		 */
+		public int addIntField(String name) {
+			intFieldNames.add(name);
+			return intFieldNames.size() - 1;
+		}
+
+		/**
+		 * Adds a long field to this Schema.
+		 *
+		 * @param name Name of the field.
+		 * @return Index of the field
+		 */
+		public int addLongField(String name) {
+			longFieldNames.add(name);
+			return longFieldNames.size() - 1;
+		}
+
+		/**
+		 * Adds a float field to this Schema.
+		 *
+		 * @param name Name of the field.
+		 * @return Index of the field
+		 */
+		public int addFloatField(String name) {
+			floatFieldNames.add(name);
+			return floatFieldNames.size() - 1;
+		}
+
+		/**
+		 * Adds a double field to this Schema.
+		 *
+		 * @param name Name of the field.
+		 * @return Index of the field
+		 */
+		public int addDoubleField(String name) {
+			doubleFieldNames.add(name);
+			return doubleFieldNames.size() - 1;
+		}
+
+		/**
+		 * Returns the index of the int field with the specified name.
+		 *
+		 * @param name Name of the field.
+		 * @return Index of the field, or -1 if there is no int field with that name
+		 */
+		public int getIntField(String name) {
+			return intFieldNames.indexOf(name);
+		}
+
+		/**
+		 * Returns the index of the long field with the specified name.
+		 *
+		 * @param name Name of the field.
+		 * @return Index of the field, or -1 if there is no long field with that name
+		 */
+		public int getLongField(String name) {
+			return longFieldNames.indexOf(name);
+		}
+
+		/**
+		 * Returns the index of the float field with the specified name.
+		 *
+		 * @param name Name of the field.
+		 * @return Index of the field, or -1 if there is no float field with that name
+		 */
+		public int getFloatField(String name) {
+			return floatFieldNames.indexOf(name);
+		}
+
+		/**
+		 * Returns the index of the double field with the specified name.
+		 *
+		 * @param name Name of the field.
+		 * @return Index of the field, or -1 if there is no double field with that name
+		 */
+		public int getDoubleField(String name) {
+			return doubleFieldNames.indexOf(name);
+		}
+
+		/**
+		 * Returns the number of int fields.
+		 *
+		 * @return Number of int fields
+		 */
+		public int getNumIntFields() {
+			return intFieldNames.size();
+		}
+
+		/**
+		 * Returns the number of long fields.
+		 *
+		 * @return Number of long fields
+		 */
+		public int getNumLongFields() {
+			return longFieldNames.size();
+		}
+
+		/**
+		 * Returns the number of float fields.
+		 *
+		 * @return Number of float fields
+		 */
+		public int getNumFloatFields() {
+			return floatFieldNames.size();
+		}
+
+		/**
+		 * Returns the number of double fields.
+		 *
+		 * @return Number of double fields
+		 */
+		public int getNumDoubleFields() {
+			return doubleFieldNames.size();
+		}
+
+	}
+
+}
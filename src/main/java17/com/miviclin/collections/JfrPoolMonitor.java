@@ -0,0 +1,163 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * {@link PoolMonitor} that emits Java Flight Recorder events, so that pool misses and node allocations can be
+ * correlated with GC activity in a recording. This is the Java 17 implementation.<br>
+ * Events are only created when they are enabled in the running recording.
+ *
+ * @author Miguel Vicente Linares
+ */
+public class JfrPoolMonitor implements PoolMonitor {
+
+	/**
+	 * Creates a new JfrPoolMonitor.
+	 */
+	public JfrPoolMonitor() {
+	}
+
+	/**
+	 * Returns true if this monitor emits JFR events on the running JVM.
+	 *
+	 * @return true if JFR events are supported
+	 */
+	public static boolean isSupported() {
+		return true;
+	}
+
+	@Override
+	public void objectCreated(String poolName, long durationNanos) {
+		if (ObjectCreatedEvent.TYPE.isEnabled()) {
+			ObjectCreatedEvent event = new ObjectCreatedEvent();
+			event.poolName = poolName;
+			event.creationDuration = durationNanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void nodeCreated(String queueName) {
+		if (NodeCreatedEvent.TYPE.isEnabled()) {
+			NodeCreatedEvent event = new NodeCreatedEvent();
+			event.queueName = queueName;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void poolSizeSampled(String poolName, int size) {
+		if (PoolSizeEvent.TYPE.isEnabled()) {
+			PoolSizeEvent event = new PoolSizeEvent();
+			event.poolName = poolName;
+			event.size = size;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void queueSizeSampled(String queueName, int size, int numPooledNodes) {
+		if (QueueSizeEvent.TYPE.isEnabled()) {
+			QueueSizeEvent event = new QueueSizeEvent();
+			event.queueName = queueName;
+			event.size = size;
+			event.numPooledNodes = numPooledNodes;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Emitted when a pool is empty and has to create a new object.
+	 */
+	@Name("com.miviclin.collections.ObjectCreated")
+	@Label("Pool Object Created")
+	@Category("Collections")
+	static class ObjectCreatedEvent extends Event {
+
+		static final ObjectCreatedEvent TYPE = new ObjectCreatedEvent();
+
+		@Label("Pool Name")
+		String poolName;
+
+		@Label("Creation Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long creationDuration;
+
+	}
+
+	/**
+	 * Emitted when a queue has no pooled nodes left and has to create a new node.
+	 */
+	@Name("com.miviclin.collections.NodeCreated")
+	@Label("Queue Node Created")
+	@Category("Collections")
+	static class NodeCreatedEvent extends Event {
+
+		static final NodeCreatedEvent TYPE = new NodeCreatedEvent();
+
+		@Label("Queue Name")
+		String queueName;
+
+	}
+
+	/**
+	 * Emitted when the size of a pool is sampled.
+	 */
+	@Name("com.miviclin.collections.PoolSize")
+	@Label("Pool Size")
+	@Category("Collections")
+	@StackTrace(false)
+	static class PoolSizeEvent extends Event {
+
+		static final PoolSizeEvent TYPE = new PoolSizeEvent();
+
+		@Label("Pool Name")
+		String poolName;
+
+		@Label("Size")
+		int size;
+
+	}
+
+	/**
+	 * Emitted when the size of a queue is sampled.
+	 */
+	@Name("com.miviclin.collections.QueueSize")
+	@Label("Queue Size")
+	@Category("Collections")
+	@StackTrace(false)
+	static class QueueSizeEvent extends Event {
+
+		static final QueueSizeEvent TYPE = new QueueSizeEvent();
+
+		@Label("Queue Name")
+		String queueName;
+
+		@Label("Size")
+		int size;
+
+		@Label("Pooled Nodes")
+		int numPooledNodes;
+
+	}
+
+}
@@ -0,0 +1,35 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+/**
+ * Access to facilities of the running JVM that are not available on every supported Java version. This is the Java 17
+ * implementation.
+ *
+ * @author Miguel Vicente Linares
+ */
+final class Platform {
+
+	private Platform() {
+	}
+
+	/**
+	 * Hints the processor that the calling thread is in a spin-wait loop.
+	 */
+	static void onSpinWait() {
+		Thread.onSpinWait();
+	}
+
+}
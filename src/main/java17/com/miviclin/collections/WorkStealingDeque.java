@@ -0,0 +1,209 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Work-stealing deque based on the Chase-Lev algorithm. This deque is meant to be used by job systems that split work
+ * into many fine-grained tasks. This is the Java 17 implementation.<br>
+ * A single thread owns the deque. The owner pushes and pops tasks at the bottom, in LIFO order, without any CAS unless
+ * it competes with a thief for the last task. Any other thread can steal tasks from the top, in FIFO order, with a
+ * single CAS.<br>
+ * Tasks are stored directly in a plain circular array, and the indices are plain long fields. Every access is ordered
+ * with a {@link VarHandle} using the weakest mode the algorithm allows, so there are no atomic wrapper objects between
+ * the deque and its tasks. The array doubles its capacity when it is full and never shrinks, so once it has grown to
+ * the peak number of pending tasks, pushing and popping do not allocate. Tasks themselves can be recycled with a
+ * {@link Pool} once they have run.<br>
+ * Thieves never clear the slots of the tasks they steal, since a delayed thief could otherwise erase a recycled task
+ * that has been pushed again into the same slot. A stolen task stays referenced by the array until its slot is
+ * overwritten by a later push.<br>
+ * This deque does not allow null objects.
+ *
+ * @author Miguel Vicente Linares
+ *
+ * @param <E>
+ */
+public class WorkStealingDeque<E> {
+
+	private static final VarHandle BOTTOM;
+	private static final VarHandle TOP;
+	private static final VarHandle ARRAY;
+	private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			BOTTOM = lookup.findVarHandle(WorkStealingDeque.class, "bottom", long.class);
+			TOP = lookup.findVarHandle(WorkStealingDeque.class, "top", long.class);
+			ARRAY = lookup.findVarHandle(WorkStealingDeque.class, "array", Object[].class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private long bottom;
+	private long top;
+	private Object[] array;
+
+	/**
+	 * Creates a new WorkStealingDeque with capacity for 64 tasks.
+	 */
+	public WorkStealingDeque() {
+		this(64);
+	}
+
+	/**
+	 * Creates a new WorkStealingDeque with the specified initial capacity. The capacity is rounded up to the next power
+	 * of two.
+	 *
+	 * @param initialCapacity Initial capacity.
+	 */
+	public WorkStealingDeque(int initialCapacity) {
+		int capacity = 2;
+		while (capacity < initialCapacity) {
+			capacity <<= 1;
+		}
+		this.bottom = 0;
+		this.top = 0;
+		ARRAY.setRelease(this, new Object[capacity]);
+	}
+
+	/**
+	 * Pushes the specified task at the bottom of this deque. This method must only be called by the owner thread.
+	 *
+	 * @param e Task.
+	 * @throws NullPointerException if the specified task is null
+	 */
+	public void push(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		long b = bottom;
+		long t = (long) TOP.getAcquire(this);
+		Object[] a = array;
+		if (b - t >= a.length - 1) {
+			a = grow(a, b, t);
+			ARRAY.setRelease(this, a);
+		}
+		SLOTS.setOpaque(a, (int) b & (a.length - 1), e);
+		BOTTOM.setRelease(this, b + 1);
+	}
+
+	/**
+	 * Pops the task at the bottom of this deque, which is the last task pushed. This method must only be called by the
+	 * owner thread.
+	 *
+	 * @return The task at the bottom of this deque, or null if this deque is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E pop() {
+		long b = bottom - 1;
+		Object[] a = array;
+		BOTTOM.setOpaque(this, b);
+		VarHandle.fullFence();
+		long t = (long) TOP.getOpaque(this);
+		if (t > b) {
+			BOTTOM.setOpaque(this, t);
+			return null;
+		}
+		int index = (int) b & (a.length - 1);
+		E e = (E) SLOTS.getOpaque(a, index);
+		if (t == b) {
+			if (TOP.compareAndSet(this, t, t + 1)) {
+				SLOTS.compareAndSet(a, index, e, null);
+			} else {
+				e = null;
+			}
+			BOTTOM.setOpaque(this, t + 1);
+			return e;
+		}
+		SLOTS.setOpaque(a, index, null);
+		return e;
+	}
+
+	/**
+	 * Steals the task at the top of this deque, which is the oldest task. This method can be called by any thread.<br>
+	 * This method returns null if this deque is empty, and also if another thread took the task first. In that case,
+	 * the caller can try again.
+	 *
+	 * @return The task at the top of this deque, or null if this deque is empty or the task was taken by another thread
+	 */
+	@SuppressWarnings("unchecked")
+	public E steal() {
+		long t = (long) TOP.getAcquire(this);
+		VarHandle.fullFence();
+		long b = (long) BOTTOM.getAcquire(this);
+		if (t >= b) {
+			return null;
+		}
+		Object[] a = (Object[]) ARRAY.getAcquire(this);
+		E e = (E) SLOTS.getOpaque(a, (int) t & (a.length - 1));
+		if (e == null || !TOP.compareAndSet(this, t, t + 1)) {
+			return null;
+		}
+		return e;
+	}
+
+	/**
+	 * Returns the number of tasks in this deque. The returned value is only an estimation if other threads are
+	 * modifying this deque concurrently.
+	 *
+	 * @return Number of tasks in this deque
+	 */
+	public int size() {
+		long size = (long) BOTTOM.getAcquire(this) - (long) TOP.getAcquire(this);
+		return (size < 0) ? 0 : (int) size;
+	}
+
+	/**
+	 * Returns true if this deque is empty (size() == 0).
+	 *
+	 * @return true if this deque is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the number of tasks this deque can hold before growing.
+	 *
+	 * @return Capacity
+	 */
+	public int capacity() {
+		return ((Object[]) ARRAY.getAcquire(this)).length;
+	}
+
+	/**
+	 * Creates a new array with twice the capacity of the specified array and copies the tasks in the range [t, b) to it.
+	 * The new array must be published with a release store before thieves can read it.
+	 *
+	 * @param a Current array.
+	 * @param b Bottom index.
+	 * @param t Top index.
+	 * @return New array
+	 */
+	private static Object[] grow(Object[] a, long b, long t) {
+		Object[] newArray = new Object[a.length * 2];
+		int mask = a.length - 1;
+		int newMask = newArray.length - 1;
+		for (long i = t; i < b; i++) {
+			newArray[(int) i & newMask] = SLOTS.getOpaque(a, (int) i & mask);
+		}
+		return newArray;
+	}
+
+}
@@ -0,0 +1,192 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class AdaptivePoolTest {
+
+	@Test
+	@Parameters({ "1", "3", "10" })
+	public void recycle_withinTheCurrentWindow_retainsTheWholeWorkingSet(int numObjects) throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(0.5, 0, 8);
+
+		List<Object> objects = obtain(pool, numObjects);
+		recycle(pool, objects);
+
+		Assert.assertEquals(numObjects, pool.size());
+		Assert.assertEquals(0, pool.getNumCheckedOut());
+	}
+
+	@Test
+	@Parameters({ "1", "3", "10" })
+	public void recycleAll_withinTheCurrentWindow_retainsTheWholeWorkingSet(int numObjects) throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(0.5, 0, 8);
+		Object[] objects = new Object[numObjects];
+
+		pool.obtain(objects, numObjects);
+		int numCheckedOutAfterObtain = pool.getNumCheckedOut();
+		pool.recycleAll(objects);
+
+		Assert.assertEquals(numObjects, numCheckedOutAfterObtain);
+		Assert.assertEquals(numObjects, pool.size());
+		Assert.assertEquals(0, pool.getNumCheckedOut());
+	}
+
+	@Test
+	public void recycleAll_moreObjectsThanTheWorkingSet_discardsTheExcess() throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(0.5, 0, 8);
+		Object[] objects = new Object[4];
+		pool.obtain(objects, 2);
+		objects[2] = new Object();
+		objects[3] = new Object();
+
+		pool.recycleAll(objects);
+
+		Assert.assertEquals(2, pool.size());
+	}
+
+	@Test
+	public void recycle_emptyPoolWithoutObservedDemand_discardsTheObject() throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(0.5, 0, 8);
+
+		pool.recycle(new Object());
+
+		Assert.assertTrue(pool.isEmpty());
+	}
+
+	@Test
+	public void getEstimatedWorkingSet_afterMaintain_followsTheWindowPeak() throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(0.5, 0, 8);
+
+		recycle(pool, obtain(pool, 8));
+		pool.maintain();
+
+		Assert.assertEquals(4, pool.getEstimatedWorkingSet());
+	}
+
+	@Test
+	public void maintain_afterSpike_trimsIdleObjectsGradually() throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(1, 0, 4);
+
+		recycle(pool, obtain(pool, 20));
+		pool.maintain();
+		int sizeAfterFirstWindow = pool.size();
+		pool.maintain();
+		int sizeAfterSecondWindow = pool.size();
+		pool.maintain();
+		int sizeAfterThirdWindow = pool.size();
+
+		Assert.assertEquals(20, sizeAfterFirstWindow);
+		Assert.assertEquals(16, sizeAfterSecondWindow);
+		Assert.assertEquals(12, sizeAfterThirdWindow);
+	}
+
+	@Test
+	public void maintain_steadyLoad_keepsTheWorkingSet() throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(0.5, 0, 8);
+
+		for (int i = 0; i < 20; i++) {
+			recycle(pool, obtain(pool, 5));
+			pool.maintain();
+		}
+
+		Assert.assertEquals(5, pool.size());
+	}
+
+	@Test
+	public void maintain_idleAfterLoad_trimsAllObjects() throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(0.25, 0, 8);
+
+		recycle(pool, obtain(pool, 4));
+		for (int i = 0; i < 200; i++) {
+			pool.maintain();
+		}
+
+		Assert.assertEquals(0, pool.getEstimatedWorkingSet());
+		Assert.assertEquals(0, pool.size());
+	}
+
+	@Test
+	public void maintain_loadDropsToLowerLevel_settlesOnTheLowerLevel() throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(0.5, 0, 8);
+
+		recycle(pool, obtain(pool, 20));
+		for (int i = 0; i < 50; i++) {
+			recycle(pool, obtain(pool, 5));
+			pool.maintain();
+		}
+
+		Assert.assertEquals(5, pool.getEstimatedWorkingSet());
+		Assert.assertEquals(5, pool.size());
+	}
+
+	@Test
+	public void obtain_positiveWindowLength_closesWindowsAutomatically() throws Exception {
+		AdaptivePool<Object> pool = new ObjectAdaptivePool(1, 2, 8);
+
+		List<Object> objects = obtain(pool, 2);
+		recycle(pool, objects);
+		obtain(pool, 1);
+		obtain(pool, 1);
+
+		Assert.assertEquals(2, pool.getEstimatedWorkingSet());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@Parameters({ "0", "1.5" })
+	public void createAdaptivePool_smoothingFactorOutOfRange_throwsIllegalArgumentException(double smoothingFactor)
+			throws Exception {
+
+		new ObjectAdaptivePool(smoothingFactor, 0, 8);
+	}
+
+	private static List<Object> obtain(Pool<Object> pool, int numObjects) {
+		List<Object> objects = new ArrayList<>();
+		for (int i = 0; i < numObjects; i++) {
+			objects.add(pool.obtain());
+		}
+		return objects;
+	}
+
+	private static void recycle(Pool<Object> pool, List<Object> objects) {
+		for (Object object : objects) {
+			pool.recycle(object);
+		}
+	}
+
+	private static class ObjectAdaptivePool extends AdaptivePool<Object> {
+
+		public ObjectAdaptivePool(double smoothingFactor, int windowLength, int trimStep) {
+			super(10, smoothingFactor, windowLength, trimStep);
+		}
+
+		@Override
+		public Object createObject() {
+			return new Object();
+		}
+
+	}
+
+}
@@ -0,0 +1,362 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Verifies that the steady state of the pooled collections does not allocate. Every workload is warmed up so that it
+ * is compiled by the JIT, and then the bytes allocated by the current thread are measured across many operations. The
+ * test fails if the allocated bytes exceed the budget of the whole run plus a small tolerance for measurement noise, so
+ * a workload that allocates a few bytes every few hundred operations is still detected.
+ */
+public class AllocationTest {
+
+	private static final int NUM_WARMUP_ROUNDS = 20;
+	private static final int NUM_OPERATIONS = 200000;
+	private static final long MEASUREMENT_NOISE_BYTES = 1024;
+	private static final long MAX_ITERATOR_BYTES = 64;
+	private static final Object ELEMENT = new Object();
+
+	private com.sun.management.ThreadMXBean threadMXBean;
+
+	@Before
+	public void setUp() throws Exception {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threadMXBean = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	@Test
+	public void poolObtainAndRecycle_steadyState_doesNotAllocate() throws Exception {
+		final Pool<Object> pool = new ObjectPool();
+		for (int i = 0; i < 16; i++) {
+			pool.recycle(new Object());
+		}
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i++) {
+					pool.recycle(pool.obtain());
+				}
+			}
+		});
+	}
+
+	@Test
+	public void poolBatchObtainAndRecycle_steadyState_doesNotAllocate() throws Exception {
+		final Pool<Object> pool = new ObjectPool();
+		final Object[] batch = new Object[100];
+		pool.obtain(batch, batch.length);
+		pool.recycleAll(batch);
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i += batch.length) {
+					pool.obtain(batch, batch.length);
+					pool.recycleAll(batch);
+				}
+			}
+		});
+	}
+
+	@Test
+	public void queueOfferPeekAndPoll_steadyState_doesNotAllocate() throws Exception {
+		final PooledLinkedQueue<Object> queue = new PooledLinkedQueue<>(16);
+		for (int i = 0; i < 8; i++) {
+			queue.offer(ELEMENT);
+		}
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i++) {
+					queue.offer(ELEMENT);
+					queue.peek();
+					queue.poll();
+				}
+			}
+		});
+	}
+
+	@Test
+	public void chunkedQueueOfferAndPollAcrossChunks_steadyState_doesNotAllocate() throws Exception {
+		final ChunkedQueue<Object> queue = new ChunkedQueue<>(4, 4);
+		for (int i = 0; i < 6; i++) {
+			queue.offer(ELEMENT);
+		}
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i++) {
+					queue.offer(ELEMENT);
+					queue.poll();
+				}
+			}
+		});
+	}
+
+	@Test
+	public void indexedQueueOfferContainsAndRemove_steadyState_doesNotAllocate() throws Exception {
+		final PooledLinkedQueue<Object> queue = new PooledLinkedQueue<>(64, PooledLinkedQueue.IndexMode.IDENTITY);
+		final Object[] elements = new Object[32];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = new Object();
+			queue.offer(elements[i]);
+		}
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i++) {
+					Object element = elements[i & (elements.length - 1)];
+					if (queue.contains(element)) {
+						queue.remove(element);
+						queue.offer(element);
+					}
+				}
+			}
+		});
+	}
+
+	@Test
+	public void queueIteration_steadyState_doesNotAllocatePerElement() throws Exception {
+		final PooledLinkedQueue<Object> queue = new PooledLinkedQueue<>(1000);
+		for (int i = 0; i < 1000; i++) {
+			queue.offer(ELEMENT);
+		}
+		long numIterators = NUM_OPERATIONS / 1000;
+
+		assertAllocationBudget(numIterators * MAX_ITERATOR_BYTES, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i += 1000) {
+					Iterator<Object> iterator = queue.iterator();
+					while (iterator.hasNext()) {
+						iterator.next();
+					}
+				}
+			}
+		});
+	}
+
+	@Test
+	public void listAppendAndRemoveByHandle_steadyState_doesNotAllocate() throws Exception {
+		final PooledLinkedList<Object> list = new PooledLinkedList<>(16);
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i++) {
+					long handle = list.append(ELEMENT);
+					list.insertAfter(handle, ELEMENT);
+					list.removeByHandle(list.nextHandle(handle));
+					list.removeByHandle(handle);
+				}
+			}
+		});
+	}
+
+	@Test
+	public void arenaPoolObtainAndReleaseAll_steadyState_doesNotAllocate() throws Exception {
+		final ArenaPool<Object> pool = new ObjectArenaPool();
+		pool.preallocate(100);
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i += 100) {
+					pool.beginScope();
+					for (int j = 0; j < 100; j++) {
+						pool.obtain();
+					}
+					pool.endScope();
+				}
+			}
+		});
+	}
+
+	@Test
+	public void structPoolAllocateAndFree_steadyState_doesNotAllocate() throws Exception {
+		StructPool.Schema schema = new StructPool.Schema();
+		final int x = schema.addFloatField("x");
+		final StructPool pool = new StructPool(schema, 16);
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i++) {
+					long handle = pool.allocate();
+					pool.setFloat(handle, x, i);
+					pool.free(handle);
+				}
+			}
+		});
+	}
+
+	@Test
+	public void workStealingDequePushPopAndSteal_steadyState_doesNotAllocate() throws Exception {
+		final WorkStealingDeque<Object> deque = new WorkStealingDeque<>(16);
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i++) {
+					deque.push(ELEMENT);
+					deque.push(ELEMENT);
+					deque.steal();
+					deque.pop();
+				}
+			}
+		});
+	}
+
+	@Test
+	public void eventRingPublishAndPoll_steadyState_doesNotAllocate() throws Exception {
+		final EventRing<MutableEvent> ring = new EventRing<>(new MutableEventPool(), 16);
+		final EventRing<MutableEvent>.Consumer consumer = ring.addConsumer();
+		final EventRing.EventHandler<MutableEvent> handler = new EventRing.EventHandler<MutableEvent>() {
+
+			@Override
+			public void onEvent(MutableEvent event, long sequence, boolean endOfBatch) {
+				event.value++;
+			}
+		};
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i++) {
+					long sequence = ring.next();
+					ring.get(sequence).value = i;
+					ring.publish(sequence);
+					consumer.poll(handler);
+				}
+			}
+		});
+	}
+
+	@Test
+	public void cachePutWithEviction_steadyState_doesNotAllocate() throws Exception {
+		final PooledCache<Integer, Object> cache = new PooledCache<>(64, new ObjectPool());
+		final Integer[] keys = new Integer[1024];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = i;
+		}
+
+		assertAllocationBudget(0, new Workload() {
+
+			@Override
+			public void run(int numOperations) {
+				for (int i = 0; i < numOperations; i++) {
+					Integer key = keys[i & (keys.length - 1)];
+					if (cache.get(key) == null) {
+						cache.put(key, cache.getValuePool().obtain());
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Warms up the specified workload and fails if a run of {@link #NUM_OPERATIONS} operations allocates more than the
+	 * specified number of bytes plus {@link #MEASUREMENT_NOISE_BYTES}.
+	 *
+	 * @param maxAllocatedBytes Allocation budget of the whole run.
+	 * @param workload Workload.
+	 */
+	private void assertAllocationBudget(long maxAllocatedBytes, Workload workload) {
+		for (int i = 0; i < NUM_WARMUP_ROUNDS; i++) {
+			workload.run(NUM_OPERATIONS);
+		}
+		long threadId = Thread.currentThread().getId();
+		long baselineBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+		long baselineAfter = threadMXBean.getThreadAllocatedBytes(threadId);
+		long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+		workload.run(NUM_OPERATIONS);
+		long allocatedAfter = threadMXBean.getThreadAllocatedBytes(threadId);
+
+		long allocatedBytes = (allocatedAfter - allocatedBefore) - (baselineAfter - baselineBefore);
+		Assert.assertTrue("Allocated " + allocatedBytes + " bytes in " + NUM_OPERATIONS + " operations (budget is " +
+				maxAllocatedBytes + " bytes)", allocatedBytes <= maxAllocatedBytes + MEASUREMENT_NOISE_BYTES);
+	}
+
+	private static abstract class Workload {
+
+		public abstract void run(int numOperations);
+
+	}
+
+	private static class ObjectPool extends Pool<Object> {
+
+		@Override
+		public Object createObject() {
+			return new Object();
+		}
+
+	}
+
+	private static class MutableEvent implements Pool.Poolable {
+
+		private long value;
+
+		@Override
+		public void reset() {
+			value = 0;
+		}
+
+	}
+
+	private static class MutableEventPool extends Pool<MutableEvent> {
+
+		@Override
+		public MutableEvent createObject() {
+			return new MutableEvent();
+		}
+
+	}
+
+	private static class ObjectArenaPool extends ArenaPool<Object> {
+
+		@Override
+		public Object createObject() {
+			return new Object();
+		}
+
+	}
+
+}
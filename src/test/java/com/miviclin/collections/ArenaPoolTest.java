@@ -0,0 +1,172 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class ArenaPoolTest {
+
+	@Test
+	public void createEmptyArenaPool_byDefault_isEmpty() throws Exception {
+		ArenaPool<Counter> pool = new CounterArenaPool();
+
+		boolean empty = pool.isEmpty();
+
+		Assert.assertTrue(empty);
+	}
+
+	@Test
+	@Parameters({ "1", "3" })
+	public void preallocate_emptyArenaPool_sizeIsTheNumberOfPreallocatedObjects(int numObjects) throws Exception {
+		ArenaPool<Counter> pool = new CounterArenaPool();
+
+		pool.preallocate(numObjects);
+		int size = pool.size();
+
+		Assert.assertEquals(numObjects, size);
+	}
+
+	@Test
+	@Parameters({ "1", "3", "20" })
+	public void releaseAll_afterObtainingObjects_allObjectsAreFreeAgain(int numObtained) throws Exception {
+		ArenaPool<Counter> pool = new CounterArenaPool();
+
+		for (int i = 0; i < numObtained; i++) {
+			pool.obtain();
+		}
+		pool.releaseAll();
+
+		Assert.assertEquals(numObtained, pool.size());
+		Assert.assertEquals(0, pool.getNumObtained());
+	}
+
+	@Test
+	public void releaseAll_poolableObjects_objectsAreReset() throws Exception {
+		ArenaPool<Counter> pool = new CounterArenaPool();
+
+		Counter counter = pool.obtain();
+		counter.value = 5;
+		pool.releaseAll();
+
+		Assert.assertEquals(0, counter.value);
+	}
+
+	@Test
+	public void obtain_afterReleaseAll_reusesReleasedObjects() throws Exception {
+		CounterArenaPool pool = new CounterArenaPool();
+
+		pool.obtain();
+		pool.obtain();
+		pool.releaseAll();
+		pool.obtain();
+		pool.obtain();
+
+		Assert.assertEquals(2, pool.numCreatedObjects);
+	}
+
+	@Test
+	public void endScope_nestedScope_onlyReleasesObjectsOfTheNestedScope() throws Exception {
+		ArenaPool<Counter> pool = new CounterArenaPool();
+
+		Counter outerCounter = pool.obtain();
+		outerCounter.value = 1;
+		pool.beginScope();
+		Counter innerCounter = pool.obtain();
+		innerCounter.value = 2;
+		pool.endScope();
+
+		Assert.assertEquals(1, outerCounter.value);
+		Assert.assertEquals(0, innerCounter.value);
+		Assert.assertEquals(1, pool.getNumObtained());
+	}
+
+	@Test
+	public void beginScope_deeperThanInitialScopeDepth_scopesAreStillReleasedInOrder() throws Exception {
+		ArenaPool<Counter> pool = new CounterArenaPool();
+
+		for (int i = 0; i < 10; i++) {
+			pool.beginScope();
+			pool.obtain();
+		}
+		for (int i = 10; i > 0; i--) {
+			Assert.assertEquals(i, pool.getNumObtained());
+			pool.endScope();
+		}
+
+		Assert.assertEquals(0, pool.getNumObtained());
+		Assert.assertEquals(0, pool.getScopeDepth());
+	}
+
+	@Test
+	public void releaseAll_withOpenScopes_closesAllScopes() throws Exception {
+		ArenaPool<Counter> pool = new CounterArenaPool();
+
+		pool.beginScope();
+		pool.beginScope();
+		pool.obtain();
+		pool.releaseAll();
+
+		Assert.assertEquals(0, pool.getScopeDepth());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void endScope_noOpenScope_throwsIllegalStateException() throws Exception {
+		ArenaPool<Counter> pool = new CounterArenaPool();
+
+		pool.endScope();
+	}
+
+	@Test
+	public void clear_withObjectsInUse_onlyRemovesFreeObjects() throws Exception {
+		ArenaPool<Counter> pool = new CounterArenaPool();
+
+		pool.preallocate(3);
+		pool.obtain();
+		pool.clear();
+
+		Assert.assertTrue(pool.isEmpty());
+		Assert.assertEquals(1, pool.getNumObtained());
+	}
+
+	private static class CounterArenaPool extends ArenaPool<Counter> {
+
+		private int numCreatedObjects;
+
+		@Override
+		public Counter createObject() {
+			numCreatedObjects++;
+			return new Counter();
+		}
+
+	}
+
+	private static class Counter implements Pool.Poolable {
+
+		private int value;
+
+		@Override
+		public void reset() {
+			value = 0;
+		}
+
+	}
+
+}
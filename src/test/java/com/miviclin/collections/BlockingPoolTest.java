@@ -0,0 +1,514 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class BlockingPoolTest {
+
+	@Test
+	@Parameters({ "1", "3" })
+	public void tryObtain_budgetExhausted_returnsNull(int maxObjects) throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(maxObjects);
+
+		for (int i = 0; i < maxObjects; i++) {
+			Assert.assertNotNull(pool.tryObtain());
+		}
+		Object object = pool.tryObtain();
+
+		Assert.assertNull(object);
+		Assert.assertEquals(maxObjects, pool.getNumCreated());
+	}
+
+	@Test
+	public void obtainAsync_objectAvailable_returnsCompletedFuture() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(1);
+
+		Future<Object> future = pool.obtainAsync();
+
+		Assert.assertTrue(future.isDone());
+		Assert.assertNotNull(future.get());
+	}
+
+	@Test
+	public void obtainAsync_budgetExhausted_completesWithTheNextRecycledObject() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(1);
+
+		Object object = pool.obtain();
+		Future<Object> future = pool.obtainAsync();
+		boolean doneBeforeRecycle = future.isDone();
+		pool.recycle(object);
+
+		Assert.assertFalse(doneBeforeRecycle);
+		Assert.assertSame(object, future.get());
+		Assert.assertTrue(pool.isEmpty());
+	}
+
+	@Test
+	public void obtainAsyncWithCallback_objectAvailable_callsTheCallbackRightAway() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(1);
+		RecordingCallback callback = new RecordingCallback();
+
+		Future<Object> future = pool.obtainAsync(callback);
+
+		Assert.assertNotNull(callback.object);
+		Assert.assertSame(callback.object, future.get());
+	}
+
+	@Test
+	public void obtainAsyncWithCallback_budgetExhausted_callsTheCallbackWhenAnObjectIsRecycled() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(1);
+		RecordingCallback callback = new RecordingCallback();
+
+		Object object = pool.obtain();
+		pool.obtainAsync(callback);
+		Object objectBeforeRecycle = callback.object;
+		pool.recycle(object);
+
+		Assert.assertNull(objectBeforeRecycle);
+		Assert.assertSame(object, callback.object);
+		Assert.assertTrue(pool.isEmpty());
+	}
+
+	@Test
+	public void obtainAsyncWithCallback_creationFailsWhileWaiting_handsTheFreedBudgetToTheWaiter() throws Exception {
+		final RecordingCallback callback = new RecordingCallback();
+		final BlockingPool<Object> pool = new BlockingPool<Object>(1) {
+
+			private boolean firstCall = true;
+
+			@Override
+			public Object createObject() {
+				if (firstCall) {
+					firstCall = false;
+					obtainAsync(callback);
+					throw new IllegalStateException();
+				}
+				return new Object();
+			}
+		};
+
+		try {
+			pool.obtain();
+			Assert.fail();
+		} catch (IllegalStateException e) {
+		}
+
+		Assert.assertNotNull(callback.object);
+		Assert.assertEquals(0, pool.getNumWaiters());
+		Assert.assertEquals(1, pool.getNumCreated());
+	}
+
+	@Test
+	public void obtainAsync_creationFails_completesExceptionally() throws Exception {
+		BlockingPool<Object> pool = new BlockingPool<Object>(1) {
+
+			@Override
+			public Object createObject() {
+				throw new IllegalStateException();
+			}
+		};
+		RecordingCallback callback = new RecordingCallback();
+
+		Future<Object> future = pool.obtainAsync(callback);
+
+		Assert.assertTrue(callback.error instanceof IllegalStateException);
+		Assert.assertEquals(0, pool.getNumCreated());
+		try {
+			future.get();
+			Assert.fail();
+		} catch (ExecutionException e) {
+			Assert.assertSame(callback.error, e.getCause());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void obtain_creationFailsWhileWaiting_wakesTheWaiterToCreateTheObject() throws Exception {
+		final CountDownLatch creationStarted = new CountDownLatch(1);
+		final CountDownLatch failCreation = new CountDownLatch(1);
+		final BlockingPool<Object> pool = new BlockingPool<Object>(1) {
+
+			private boolean firstCall = true;
+
+			@Override
+			public Object createObject() {
+				if (firstCall) {
+					firstCall = false;
+					creationStarted.countDown();
+					try {
+						failCreation.await();
+					} catch (InterruptedException e) {
+					}
+					throw new IllegalStateException();
+				}
+				return new Object();
+			}
+		};
+		Thread creatingThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					pool.obtain();
+				} catch (IllegalStateException e) {
+				}
+			}
+		});
+		creatingThread.start();
+		creationStarted.await();
+		final AtomicReference<Object> obtainedObject = new AtomicReference<>();
+		Thread waitingThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				obtainedObject.set(pool.obtain());
+			}
+		});
+		waitingThread.start();
+		while (pool.getNumWaiters() == 0) {
+			Thread.yield();
+		}
+
+		failCreation.countDown();
+		waitingThread.join();
+
+		Assert.assertNotNull(obtainedObject.get());
+		Assert.assertEquals(1, pool.getNumCreated());
+	}
+
+	@Test
+	public void recycle_severalWaiters_completesFuturesInFifoOrder() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(2);
+
+		Object firstObject = pool.obtain();
+		Object secondObject = pool.obtain();
+		Future<Object> firstFuture = pool.obtainAsync();
+		Future<Object> secondFuture = pool.obtainAsync();
+		pool.recycle(secondObject);
+		boolean secondDoneAfterFirstRecycle = secondFuture.isDone();
+		pool.recycle(firstObject);
+
+		Assert.assertFalse(secondDoneAfterFirstRecycle);
+		Assert.assertSame(secondObject, firstFuture.get());
+		Assert.assertSame(firstObject, secondFuture.get());
+	}
+
+	@Test
+	public void cancel_pendingFuture_isRemovedFromTheWaiters() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(1);
+
+		Object object = pool.obtain();
+		Future<Object> future = pool.obtainAsync();
+		boolean cancelled = future.cancel(false);
+		pool.recycle(object);
+
+		Assert.assertTrue(cancelled);
+		Assert.assertEquals(0, pool.getNumWaiters());
+		Assert.assertEquals(1, pool.size());
+	}
+
+	@Test(expected = CancellationException.class)
+	public void get_cancelledFuture_throwsCancellationException() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(1);
+
+		pool.obtain();
+		Future<Object> future = pool.obtainAsync();
+		future.cancel(false);
+		future.get();
+	}
+
+	@Test
+	public void obtainWithTimeout_budgetExhausted_returnsNullAfterTimeout() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(1);
+
+		pool.obtain();
+		Object object = pool.obtain(10, TimeUnit.MILLISECONDS);
+
+		Assert.assertNull(object);
+		Assert.assertEquals(0, pool.getNumWaiters());
+	}
+
+	@Test
+	public void obtain_budgetExhausted_waitsUntilAnotherThreadRecycles() throws Exception {
+		final BlockingPool<Object> pool = new ObjectBlockingPool(1);
+		final Object object = pool.obtain();
+		final AtomicReference<Object> obtainedObject = new AtomicReference<>();
+		final CountDownLatch obtained = new CountDownLatch(1);
+
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				obtainedObject.set(pool.obtain());
+				obtained.countDown();
+			}
+		});
+		thread.start();
+		while (pool.getNumWaiters() == 0) {
+			Thread.yield();
+		}
+		pool.recycle(object);
+
+		Assert.assertTrue(obtained.await(5, TimeUnit.SECONDS));
+		Assert.assertSame(object, obtainedObject.get());
+	}
+
+	@Test
+	@Parameters({ "0", "2", "4" })
+	public void obtainBatch_budgetAvailable_takesPooledObjectsAndCreatesTheShortfall(int poolSize) throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(4);
+		Object[] objects = new Object[4];
+		pool.obtain(objects, poolSize);
+		pool.recycleAll(objects, poolSize);
+
+		pool.obtain(objects, 4);
+
+		Assert.assertEquals(4, pool.getNumCreated());
+		Assert.assertEquals(0, pool.size());
+		Assert.assertNull(pool.tryObtain());
+	}
+
+	@Test(timeout = 10000)
+	public void obtainBatch_creationFailsPartway_givesBackTheWholeBatch() throws Exception {
+		FailingBlockingPool pool = new FailingBlockingPool(4);
+		Object[] objects = new Object[4];
+		pool.obtain(objects, 2);
+		pool.recycleAll(objects, 2);
+		pool.numCreationsBeforeFailure = 1;
+
+		try {
+			pool.obtain(objects, 4);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+		}
+
+		Assert.assertArrayEquals(new Object[4], objects);
+		Assert.assertEquals(2, pool.size());
+		Assert.assertEquals(2, pool.getNumCreated());
+		pool.numCreationsBeforeFailure = Integer.MAX_VALUE;
+		pool.obtain(objects, 4);
+		Assert.assertEquals(4, pool.getNumCreated());
+	}
+
+	@Test(timeout = 10000)
+	public void obtainBatchIntoCollection_creationFailsPartway_givesBackTheWholeBatch() throws Exception {
+		FailingBlockingPool pool = new FailingBlockingPool(4);
+		List<Object> objects = new ArrayList<>();
+		pool.obtain(objects, 2);
+		pool.recycleAll(objects);
+		objects.clear();
+		pool.numCreationsBeforeFailure = 1;
+
+		try {
+			pool.obtain(objects, 4);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+		}
+
+		Assert.assertTrue(objects.isEmpty());
+		Assert.assertEquals(2, pool.size());
+		Assert.assertEquals(2, pool.getNumCreated());
+		pool.numCreationsBeforeFailure = Integer.MAX_VALUE;
+		pool.obtain(objects, 4);
+		Assert.assertEquals(4, objects.size());
+		Assert.assertEquals(4, pool.getNumCreated());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void obtainBatch_moreObjectsThanTheBudget_throwsIllegalArgumentException() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(2);
+
+		pool.obtain(new Object[3], 3);
+	}
+
+	@Test(timeout = 10000)
+	public void obtainBatch_twoConcurrentBatches_areServedOneAfterTheOtherWithoutDeadlock() throws Exception {
+		final BlockingPool<Object> pool = new ObjectBlockingPool(4);
+		Object[] objects = new Object[4];
+		pool.obtain(objects, 4);
+		final BlockingQueue<Object[]> obtainedBatches = new LinkedBlockingQueue<>();
+		for (int i = 0; i < 2; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					Object[] batch = new Object[3];
+					pool.obtain(batch, 3);
+					obtainedBatches.add(batch);
+				}
+			}).start();
+		}
+		while (pool.getNumWaiters() < 2) {
+			Thread.yield();
+		}
+
+		pool.recycleAll(objects);
+		Object[] firstBatch = obtainedBatches.take();
+		int numWaitersAfterFirstBatch = pool.getNumWaiters();
+		int sizeAfterFirstBatch = pool.size();
+		pool.recycleAll(firstBatch);
+		Object[] secondBatch = obtainedBatches.take();
+
+		Assert.assertEquals(1, numWaitersAfterFirstBatch);
+		Assert.assertEquals(1, sizeAfterFirstBatch);
+		Assert.assertEquals(0, pool.getNumWaiters());
+		Assert.assertEquals(1, pool.size());
+		Assert.assertEquals(4, pool.getNumCreated());
+		for (Object object : secondBatch) {
+			Assert.assertNotNull(object);
+		}
+	}
+
+	@Test
+	public void tryObtain_batchWaiting_returnsNullWithoutTakingItsObjects() throws Exception {
+		final BlockingPool<Object> pool = new ObjectBlockingPool(2);
+		final Object[] objects = new Object[2];
+		pool.obtain(objects, 2);
+		final CountDownLatch obtained = new CountDownLatch(1);
+		new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				pool.obtain(new Object[2], 2);
+				obtained.countDown();
+			}
+		}).start();
+		while (pool.getNumWaiters() == 0) {
+			Thread.yield();
+		}
+
+		pool.recycle(objects[0]);
+		Object object = pool.tryObtain();
+		pool.recycle(objects[1]);
+
+		Assert.assertNull(object);
+		Assert.assertTrue(obtained.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void recycleAll_callersWaiting_handsTheFirstObjectsToThemAndPoolsTheRest() throws Exception {
+		final BlockingPool<Object> pool = new ObjectBlockingPool(3);
+		Object[] objects = new Object[3];
+		pool.obtain(objects, 3);
+		final AtomicReference<Object> obtainedObject = new AtomicReference<>();
+		final CountDownLatch obtained = new CountDownLatch(1);
+
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				obtainedObject.set(pool.obtain());
+				obtained.countDown();
+			}
+		});
+		thread.start();
+		while (pool.getNumWaiters() == 0) {
+			Thread.yield();
+		}
+		pool.recycleAll(objects);
+
+		Assert.assertTrue(obtained.await(5, TimeUnit.SECONDS));
+		Assert.assertSame(objects[0], obtainedObject.get());
+		Assert.assertEquals(2, pool.size());
+	}
+
+	@Test
+	public void clear_poolWithObjects_releasesTheirBudget() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(1);
+
+		Object object = pool.obtain();
+		pool.recycle(object);
+		pool.clear();
+		Object newObject = pool.tryObtain();
+
+		Assert.assertNotNull(newObject);
+		Assert.assertNotSame(object, newObject);
+		Assert.assertEquals(1, pool.getNumCreated());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recycle_nullObject_throwsIllegalArgumentException() throws Exception {
+		BlockingPool<Object> pool = new ObjectBlockingPool(1);
+
+		pool.recycle(null);
+	}
+
+	private static class RecordingCallback implements BlockingPool.Callback<Object> {
+
+		Object object;
+		Throwable error;
+
+		@Override
+		public void onObtained(Object object) {
+			this.object = object;
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			this.error = error;
+		}
+
+	}
+
+	private static class FailingBlockingPool extends BlockingPool<Object> {
+
+		private int numCreationsBeforeFailure = Integer.MAX_VALUE;
+
+		public FailingBlockingPool(int maxObjects) {
+			super(maxObjects);
+		}
+
+		@Override
+		public Object createObject() {
+			if (numCreationsBeforeFailure == 0) {
+				throw new IllegalStateException();
+			}
+			numCreationsBeforeFailure--;
+			return new Object();
+		}
+
+	}
+
+	private static class ObjectBlockingPool extends BlockingPool<Object> {
+
+		public ObjectBlockingPool(int maxObjects) {
+			super(maxObjects);
+		}
+
+		@Override
+		public Object createObject() {
+			return new Object();
+		}
+
+	}
+
+}
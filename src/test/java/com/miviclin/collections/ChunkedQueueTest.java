@@ -0,0 +1,220 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class ChunkedQueueTest {
+
+	@Test
+	public void createEmptyQueue_byDefault_sizeIsZero() throws Exception {
+		ChunkedQueue<String> queue = new ChunkedQueue<>();
+
+		Assert.assertEquals(0, queue.size());
+		Assert.assertNull(queue.peek());
+		Assert.assertNull(queue.poll());
+	}
+
+	@Test
+	@Parameters({ "1, 10", "3, 10", "4, 8", "256, 1000" })
+	public void offerAndPoll_anyChunkSize_elementsAreReturnedInFifoOrder(int chunkSize, int numElements)
+			throws Exception {
+
+		ChunkedQueue<String> queue = new ChunkedQueue<>(chunkSize);
+
+		for (int i = 0; i < numElements; i++) {
+			queue.offer("E" + i);
+		}
+		Assert.assertEquals(numElements, queue.size());
+		for (int i = 0; i < numElements; i++) {
+			Assert.assertEquals("E" + i, queue.peek());
+			Assert.assertEquals("E" + i, queue.poll());
+		}
+		Assert.assertEquals(0, queue.size());
+		Assert.assertNull(queue.poll());
+	}
+
+	@Test
+	@Parameters({ "1", "3", "4" })
+	public void offerAndPoll_interleaved_elementsAreReturnedInFifoOrder(int chunkSize) throws Exception {
+		ChunkedQueue<Integer> queue = new ChunkedQueue<>(chunkSize);
+		int nextOffered = 0;
+		int nextPolled = 0;
+
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 3; i++) {
+				queue.offer(nextOffered++);
+			}
+			for (int i = 0; i < 2; i++) {
+				Assert.assertEquals(Integer.valueOf(nextPolled++), queue.poll());
+			}
+		}
+
+		Assert.assertEquals(nextOffered - nextPolled, queue.size());
+	}
+
+	@Test
+	public void poll_emptiedChunks_areStoredInThePool() throws Exception {
+		ChunkedQueue<String> queue = new ChunkedQueue<>(4, 0);
+		for (int i = 0; i < 12; i++) {
+			queue.offer("E" + i);
+		}
+
+		for (int i = 0; i < 12; i++) {
+			queue.poll();
+		}
+
+		Assert.assertEquals(2, queue.getNumPooledChunks());
+	}
+
+	@Test
+	public void offer_afterChunksWereRecycled_reusesPooledChunks() throws Exception {
+		ChunkedQueue<String> queue = new ChunkedQueue<>(4, 0);
+		for (int i = 0; i < 12; i++) {
+			queue.offer("E" + i);
+		}
+		queue.clear();
+
+		for (int i = 0; i < 12; i++) {
+			queue.offer("E" + i);
+		}
+
+		Assert.assertEquals(0, queue.getNumPooledChunks());
+		Assert.assertEquals("E0", queue.peek());
+	}
+
+	@Test
+	@Parameters({ "1", "3", "256" })
+	public void iteratorNext_queueWithManyChunks_iteratesThroughAllElementsInOrder(int chunkSize) throws Exception {
+		ChunkedQueue<String> queue = createChunkedQueue(chunkSize, 10);
+		queue.poll();
+
+		List<String> elements = new ArrayList<>(queue);
+
+		Assert.assertEquals(9, elements.size());
+		for (int i = 0; i < 9; i++) {
+			Assert.assertEquals("E" + (i + 1), elements.get(i));
+		}
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void iteratorNext_noMoreElements_throwsNoSuchElementException() throws Exception {
+		ChunkedQueue<String> queue = createChunkedQueue(2, 2);
+
+		Iterator<String> iterator = queue.iterator();
+		iterator.next();
+		iterator.next();
+		iterator.next();
+	}
+
+	@Test
+	@Parameters({ "1", "2", "3", "4" })
+	public void iteratorRemove_everyOtherElement_remainingElementsKeepTheirOrder(int chunkSize) throws Exception {
+		ChunkedQueue<String> queue = createChunkedQueue(chunkSize, 10);
+
+		Iterator<String> iterator = queue.iterator();
+		int index = 0;
+		while (iterator.hasNext()) {
+			iterator.next();
+			if (index % 2 == 1) {
+				iterator.remove();
+			}
+			index++;
+		}
+		queue.offer("E10");
+
+		List<String> expectedElements = new ArrayList<>();
+		for (int i = 0; i <= 10; i += 2) {
+			expectedElements.add("E" + i);
+		}
+		Assert.assertEquals(expectedElements, new ArrayList<>(queue));
+		Assert.assertEquals(expectedElements.size(), queue.size());
+	}
+
+	@Test
+	@Parameters({ "1", "2", "3" })
+	public void iteratorRemove_allElements_emptiesTheQueue(int chunkSize) throws Exception {
+		ChunkedQueue<String> queue = createChunkedQueue(chunkSize, 7);
+
+		Iterator<String> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+		queue.offer("E7");
+
+		Assert.assertEquals(1, queue.size());
+		Assert.assertEquals("E7", queue.poll());
+		Assert.assertNull(queue.poll());
+	}
+
+	@Test
+	public void iteratorRemove_lastElementOfTailChunk_tailIsUpdated() throws Exception {
+		ChunkedQueue<String> queue = createChunkedQueue(2, 3);
+
+		Iterator<String> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			iterator.next();
+		}
+		iterator.remove();
+		queue.offer("E3");
+
+		List<String> elements = new ArrayList<>(queue);
+		Assert.assertEquals(3, elements.size());
+		Assert.assertEquals("E3", elements.get(2));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void iteratorRemove_calledTwice_throwsIllegalStateException() throws Exception {
+		ChunkedQueue<String> queue = createChunkedQueue(2, 3);
+
+		Iterator<String> iterator = queue.iterator();
+		iterator.next();
+		iterator.remove();
+		iterator.remove();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void offer_nullObject_throwsNullPointerException() throws Exception {
+		ChunkedQueue<String> queue = new ChunkedQueue<>();
+
+		queue.offer(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createQueue_chunkSizeIsZero_throwsIllegalArgumentException() throws Exception {
+		new ChunkedQueue<String>(0);
+	}
+
+	private static ChunkedQueue<String> createChunkedQueue(int chunkSize, int numElements) {
+		ChunkedQueue<String> queue = new ChunkedQueue<>(chunkSize);
+		for (int i = 0; i < numElements; i++) {
+			queue.offer("E" + i);
+		}
+		return queue;
+	}
+
+}
@@ -0,0 +1,283 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class EventRingTest {
+
+	@Test
+	public void poll_publishedEvents_areHandledInOrderInOneBatch() throws Exception {
+		EventRing<ValueEvent> ring = new EventRing<>(new ValueEventPool(), 8);
+		EventRing<ValueEvent>.Consumer consumer = ring.addConsumer();
+		publish(ring, 1);
+		publish(ring, 2);
+		publish(ring, 3);
+		RecordingHandler handler = new RecordingHandler();
+
+		int numConsumed = consumer.poll(handler);
+
+		Assert.assertEquals(3, numConsumed);
+		Assert.assertEquals(Arrays.asList(1L, 2L, 3L), handler.values);
+		Assert.assertEquals(Arrays.asList(false, false, true), handler.endOfBatchFlags);
+		Assert.assertEquals(3, consumer.getSequence());
+	}
+
+	@Test
+	public void poll_claimedButUnpublishedEvent_stopsBeforeIt() throws Exception {
+		EventRing<ValueEvent> ring = new EventRing<>(new ValueEventPool(), 8);
+		EventRing<ValueEvent>.Consumer consumer = ring.addConsumer();
+		publish(ring, 1);
+		long unpublishedSequence = ring.next();
+		publish(ring, 3);
+		RecordingHandler handler = new RecordingHandler();
+
+		int numConsumedBeforePublish = consumer.poll(handler);
+		ring.publish(unpublishedSequence);
+		int numConsumedAfterPublish = consumer.poll(handler);
+
+		Assert.assertEquals(1, numConsumedBeforePublish);
+		Assert.assertEquals(2, numConsumedAfterPublish);
+	}
+
+	@Test
+	public void next_reusedSlot_eventIsResetBeforeItIsReturned() throws Exception {
+		EventRing<ValueEvent> ring = new EventRing<>(new ValueEventPool(), 2);
+		EventRing<ValueEvent>.Consumer consumer = ring.addConsumer();
+		publish(ring, 1);
+		publish(ring, 2);
+		consumer.poll(new RecordingHandler());
+
+		long sequence = ring.next();
+
+		Assert.assertEquals(0, ring.get(sequence).value);
+		Assert.assertEquals(2, ring.get(sequence).numResets);
+	}
+
+	@Test
+	@Parameters({ "1", "2", "4" })
+	public void tryNext_fullRing_returnsMinusOne(int size) throws Exception {
+		EventRing<ValueEvent> ring = new EventRing<>(new ValueEventPool(), size);
+		ring.addConsumer();
+		for (int i = 0; i < size; i++) {
+			publish(ring, i);
+		}
+
+		long sequence = ring.tryNext();
+
+		Assert.assertEquals(-1, sequence);
+	}
+
+	@Test
+	public void tryNext_slowestConsumerCatchesUp_claimsTheNextSequence() throws Exception {
+		EventRing<ValueEvent> ring = new EventRing<>(new ValueEventPool(), 2);
+		EventRing<ValueEvent>.Consumer fastConsumer = ring.addConsumer();
+		EventRing<ValueEvent>.Consumer slowConsumer = ring.addConsumer();
+		publish(ring, 1);
+		publish(ring, 2);
+
+		fastConsumer.poll(new RecordingHandler());
+		long sequenceBeforeSlowConsumer = ring.tryNext();
+		slowConsumer.poll(new RecordingHandler());
+		long sequenceAfterSlowConsumer = ring.tryNext();
+
+		Assert.assertEquals(-1, sequenceBeforeSlowConsumer);
+		Assert.assertEquals(2, sequenceAfterSlowConsumer);
+	}
+
+	@Test
+	public void removeConsumer_slowConsumer_noLongerBlocksProducers() throws Exception {
+		EventRing<ValueEvent> ring = new EventRing<>(new ValueEventPool(), 2);
+		EventRing<ValueEvent>.Consumer consumer = ring.addConsumer();
+		publish(ring, 1);
+		publish(ring, 2);
+
+		boolean removed = ring.removeConsumer(consumer);
+
+		Assert.assertTrue(removed);
+		Assert.assertEquals(0, ring.getNumConsumers());
+		Assert.assertEquals(2, ring.tryNext());
+	}
+
+	@Test
+	public void poll_handlerThrowsException_failedEventIsConsumed() throws Exception {
+		EventRing<ValueEvent> ring = new EventRing<>(new ValueEventPool(), 4);
+		EventRing<ValueEvent>.Consumer consumer = ring.addConsumer();
+		publish(ring, 1);
+		publish(ring, 2);
+		publish(ring, 3);
+
+		try {
+			consumer.poll(new EventRing.EventHandler<ValueEvent>() {
+
+				@Override
+				public void onEvent(ValueEvent event, long sequence, boolean endOfBatch) {
+					if (event.value == 2) {
+						throw new IllegalStateException();
+					}
+				}
+			});
+			Assert.fail();
+		} catch (IllegalStateException e) {
+		}
+
+		Assert.assertEquals(2, consumer.getSequence());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@Parameters({ "0", "3", "-4" })
+	public void createRing_sizeIsNotAPowerOfTwo_throwsIllegalArgumentException(int size) throws Exception {
+		new EventRing<>(new ValueEventPool(), size);
+	}
+
+	@Test(timeout = 30000)
+	@Parameters({ "YIELD", "PARK" })
+	public void take_concurrentProducersAndConsumers_everyConsumerReceivesEveryEvent(
+			EventRing.WaitStrategy waitStrategy) throws Exception {
+
+		assertEveryConsumerReceivesEveryEvent(waitStrategy, 2, 2, 20000);
+	}
+
+	@Test(timeout = 30000)
+	public void take_busySpinWithOneThreadPerProcessor_everyConsumerReceivesEveryEvent() throws Exception {
+		int numProcessors = Runtime.getRuntime().availableProcessors();
+		Assume.assumeTrue(numProcessors >= 2);
+		int numConsumers = Math.min(2, numProcessors - 1);
+		int numProducers = Math.min(2, numProcessors - numConsumers);
+
+		assertEveryConsumerReceivesEveryEvent(EventRing.WaitStrategy.BUSY_SPIN, numProducers, numConsumers, 20000);
+	}
+
+	/**
+	 * Runs the specified number of producers and consumers on their own threads, and fails if they do not finish within
+	 * the specified time or if any consumer does not receive every published event.
+	 *
+	 * @param waitStrategy Wait strategy of the ring.
+	 * @param numProducers Number of producer threads.
+	 * @param numConsumers Number of consumer threads.
+	 * @param timeoutMillis Maximum time the threads are given to finish, in milliseconds.
+	 */
+	private static void assertEveryConsumerReceivesEveryEvent(EventRing.WaitStrategy waitStrategy,
+			final int numProducers, int numConsumers, long timeoutMillis) throws InterruptedException {
+
+		final int numEventsPerProducer = 50000;
+		final EventRing<ValueEvent> ring = new EventRing<>(new ValueEventPool(), 64, waitStrategy);
+		final List<EventRing<ValueEvent>.Consumer> consumers = new ArrayList<>();
+		for (int c = 0; c < numConsumers; c++) {
+			consumers.add(ring.addConsumer());
+		}
+		final long[] sums = new long[consumers.size()];
+
+		List<Thread> threads = new ArrayList<>();
+		for (int c = 0; c < consumers.size(); c++) {
+			final int consumerIndex = c;
+			threads.add(new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					EventRing.EventHandler<ValueEvent> handler = new EventRing.EventHandler<ValueEvent>() {
+
+						@Override
+						public void onEvent(ValueEvent event, long sequence, boolean endOfBatch) {
+							sums[consumerIndex] += event.value;
+						}
+					};
+					int numConsumed = 0;
+					while (numConsumed < numProducers * numEventsPerProducer) {
+						numConsumed += consumers.get(consumerIndex).take(handler);
+					}
+				}
+			}));
+		}
+		for (int p = 0; p < numProducers; p++) {
+			threads.add(new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int i = 1; i <= numEventsPerProducer; i++) {
+						publish(ring, i);
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.setDaemon(true);
+			thread.start();
+		}
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		for (Thread thread : threads) {
+			thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+			Assert.assertFalse("Thread did not finish within " + timeoutMillis + " ms", thread.isAlive());
+		}
+
+		long expectedSum = numProducers * ((long) numEventsPerProducer * (numEventsPerProducer + 1) / 2);
+		for (long sum : sums) {
+			Assert.assertEquals(expectedSum, sum);
+		}
+	}
+
+	private static void publish(EventRing<ValueEvent> ring, long value) {
+		long sequence = ring.next();
+		ring.get(sequence).value = value;
+		ring.publish(sequence);
+	}
+
+	private static class ValueEvent implements Pool.Poolable {
+
+		private long value;
+		private int numResets;
+
+		@Override
+		public void reset() {
+			value = 0;
+			numResets++;
+		}
+
+	}
+
+	private static class ValueEventPool extends Pool<ValueEvent> {
+
+		@Override
+		public ValueEvent createObject() {
+			return new ValueEvent();
+		}
+
+	}
+
+	private static class RecordingHandler implements EventRing.EventHandler<ValueEvent> {
+
+		private List<Long> values = new ArrayList<>();
+		private List<Boolean> endOfBatchFlags = new ArrayList<>();
+
+		@Override
+		public void onEvent(ValueEvent event, long sequence, boolean endOfBatch) {
+			values.add(event.value);
+			endOfBatchFlags.add(endOfBatch);
+		}
+
+	}
+
+}
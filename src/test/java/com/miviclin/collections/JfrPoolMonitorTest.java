@@ -0,0 +1,64 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JfrPoolMonitorTest {
+
+	@Test
+	public void obtain_poolWithJfrMonitor_returnsNewObject() throws Exception {
+		Pool<Object> pool = createPool();
+		pool.setMonitor(new JfrPoolMonitor());
+
+		Object object = pool.obtain();
+
+		Assert.assertNotNull(object);
+	}
+
+	@Test
+	public void reportSize_poolWithJfrMonitor_doesNotChangeThePool() throws Exception {
+		Pool<Object> pool = createPool();
+		pool.setMonitor(new JfrPoolMonitor());
+		pool.recycle(new Object());
+
+		pool.reportSize();
+
+		Assert.assertEquals(1, pool.size());
+	}
+
+	@Test
+	public void offer_queueWithJfrMonitor_addsTheElement() throws Exception {
+		PooledLinkedQueue<Integer> queue = new PooledLinkedQueue<>(0);
+		queue.setMonitor(new JfrPoolMonitor());
+
+		queue.offer(1);
+		queue.reportSize();
+
+		Assert.assertEquals(1, queue.size());
+	}
+
+	private static Pool<Object> createPool() {
+		return new Pool<Object>() {
+
+			@Override
+			public Object createObject() {
+				return new Object();
+			}
+		};
+	}
+
+}
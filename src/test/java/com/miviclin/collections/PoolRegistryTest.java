@@ -0,0 +1,256 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class PoolRegistryTest {
+
+	private static final PoolRegistry.Key<Object> COLD = new PoolRegistry.Key<>("cold");
+	private static final PoolRegistry.Key<Object> FIRST = new PoolRegistry.Key<>("first");
+	private static final PoolRegistry.Key<Object> HOT = new PoolRegistry.Key<>("hot");
+	private static final PoolRegistry.Key<Object> MISSING = new PoolRegistry.Key<>("missing");
+	private static final PoolRegistry.Key<Object> OBJECTS = new PoolRegistry.Key<>("objects");
+	private static final PoolRegistry.Key<Object> SECOND = new PoolRegistry.Key<>("second");
+	private static final PoolRegistry.Key<Object> UNTRIMMABLE = new PoolRegistry.Key<>("untrimmable");
+	private static final PoolRegistry.Key<Object> WARM = new PoolRegistry.Key<>("warm");
+
+	@Test
+	public void getPool_unregisteredClass_createsObjectsWithTheNoArgumentConstructor() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+
+		Pool<StringBuilder> pool = registry.getPool(StringBuilder.class);
+
+		Assert.assertNotNull(pool.obtain());
+		Assert.assertSame(pool, registry.getPool(StringBuilder.class));
+		Assert.assertEquals(1, registry.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void obtain_classWithoutNoArgumentConstructor_throwsIllegalStateException() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+
+		registry.obtain(Integer.class);
+	}
+
+	@Test
+	public void getPool_registeredKey_returnsTheRegisteredPool() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+		Pool<Object> pool = new ObjectPool();
+
+		registry.register(OBJECTS, pool, 16);
+
+		Assert.assertSame(pool, registry.getPool(OBJECTS));
+		Assert.assertNull(registry.getPool(MISSING));
+	}
+
+	@Test
+	@Parameters({ "0", "1", "5" })
+	public void getRetainedBytes_pooledObjects_equalsSizeTimesBytesPerObject(int numObjects) throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+		Pool<Object> pool = new ObjectPool();
+		registry.register(OBJECTS, pool, 24);
+
+		for (int i = 0; i < numObjects; i++) {
+			registry.recycle(OBJECTS, new Object());
+		}
+
+		Assert.assertEquals(numObjects * 24L, registry.getRetainedBytes(OBJECTS));
+		Assert.assertEquals(numObjects * 24L, registry.getRetainedBytes());
+	}
+
+	@Test
+	public void recycle_overBudget_trimsTheLeastRecentlyUsedPoolFirst() throws Exception {
+		PoolRegistry registry = new PoolRegistry(100, 16);
+		Pool<Object> coldPool = new ObjectPool();
+		Pool<Object> hotPool = new ObjectPool();
+		registry.register(COLD, coldPool, 10);
+		registry.register(HOT, hotPool, 10);
+		for (int i = 0; i < 5; i++) {
+			coldPool.recycle(new Object());
+			hotPool.recycle(new Object());
+		}
+
+		registry.recycle(HOT, new Object());
+		registry.recycle(HOT, new Object());
+
+		Assert.assertEquals(7, hotPool.size());
+		Assert.assertEquals(3, coldPool.size());
+		Assert.assertEquals(100, registry.getRetainedBytes());
+	}
+
+	@Test
+	public void enforceBudget_leastRecentlyUsedPoolIsNotEnough_trimsTheNextPool() throws Exception {
+		PoolRegistry registry = new PoolRegistry(30, 16);
+		Pool<Object> coldPool = new ObjectPool();
+		Pool<Object> warmPool = new ObjectPool();
+		Pool<Object> hotPool = new ObjectPool();
+		registry.register(COLD, coldPool, 10);
+		registry.register(WARM, warmPool, 10);
+		registry.register(HOT, hotPool, 10);
+		for (int i = 0; i < 3; i++) {
+			coldPool.recycle(new Object());
+			warmPool.recycle(new Object());
+			hotPool.recycle(new Object());
+		}
+
+		registry.enforceBudget();
+
+		Assert.assertEquals(0, coldPool.size());
+		Assert.assertEquals(0, warmPool.size());
+		Assert.assertEquals(3, hotPool.size());
+	}
+
+	@Test
+	public void enforceBudget_poolUsedRecently_becomesTheMostRecentlyUsed() throws Exception {
+		PoolRegistry registry = new PoolRegistry(30, 16);
+		Pool<Object> firstPool = new ObjectPool();
+		Pool<Object> secondPool = new ObjectPool();
+		registry.register(FIRST, firstPool, 10);
+		registry.register(SECOND, secondPool, 10);
+		for (int i = 0; i < 3; i++) {
+			firstPool.recycle(new Object());
+			secondPool.recycle(new Object());
+		}
+
+		registry.getPool(FIRST);
+		registry.enforceBudget();
+
+		Assert.assertEquals(3, firstPool.size());
+		Assert.assertEquals(0, secondPool.size());
+	}
+
+	@Test
+	public void unregister_registeredKey_releasesItsRetainedBytes() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+		Pool<Object> pool = new ObjectPool();
+		registry.register(OBJECTS, pool, 10);
+		pool.recycle(new Object());
+
+		Pool<?> removedPool = registry.unregister(OBJECTS);
+
+		Assert.assertSame(pool, removedPool);
+		Assert.assertEquals(0, registry.getRetainedBytes());
+		Assert.assertEquals(0, registry.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recycle_unregisteredKey_throwsIllegalArgumentException() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+
+		registry.recycle(MISSING, new Object());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void obtain_unregisteredKey_throwsIllegalArgumentException() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+
+		registry.obtain(MISSING);
+	}
+
+	@Test
+	public void getPool_sameClassUnderSeveralKeys_returnsTheTypedPoolOfEachKey() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+		PoolRegistry.Key<StringBuilder> smallBuilders = new PoolRegistry.Key<>("smallBuilders");
+		PoolRegistry.Key<StringBuilder> largeBuilders = new PoolRegistry.Key<>("largeBuilders");
+		Pool<StringBuilder> smallPool = new StringBuilderPool(16);
+		Pool<StringBuilder> largePool = new StringBuilderPool(4096);
+		registry.register(smallBuilders, smallPool, 64);
+		registry.register(largeBuilders, largePool, 8192);
+
+		StringBuilder builder = registry.obtain(largeBuilders);
+
+		Assert.assertSame(smallPool, registry.getPool(smallBuilders));
+		Assert.assertSame(largePool, registry.getPool(largeBuilders));
+		Assert.assertEquals(4096, builder.capacity());
+	}
+
+	@Test
+	public void recycle_objectOfUnregisteredClass_registersAPoolForItsClass() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+
+		registry.recycle(new StringBuilder());
+
+		Assert.assertEquals(1, registry.getPool(StringBuilder.class).size());
+	}
+
+	@Test(timeout = 10000)
+	public void enforceBudget_poolThatDoesNotShrink_trimsTheOtherPoolsAndReturns() throws Exception {
+		PoolRegistry registry = new PoolRegistry(32, 16);
+		Pool<Object> untrimmablePool = new ObjectPool() {
+
+			@Override
+			public void trim(int maxSize) {
+			}
+		};
+		Pool<Object> pool = new ObjectPool();
+		registry.register(UNTRIMMABLE, untrimmablePool, 16);
+		registry.register(OBJECTS, pool, 16);
+		for (int i = 0; i < 4; i++) {
+			untrimmablePool.recycle(new Object());
+			pool.recycle(new Object());
+		}
+
+		registry.enforceBudget();
+
+		Assert.assertEquals(4, untrimmablePool.size());
+		Assert.assertEquals(0, pool.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recycle_nullObject_throwsIllegalArgumentException() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+
+		registry.recycle(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void register_negativeBytesPerObject_throwsIllegalArgumentException() throws Exception {
+		PoolRegistry registry = new PoolRegistry(1024, 16);
+
+		registry.register(OBJECTS, new ObjectPool(), -1);
+	}
+
+	private static class ObjectPool extends Pool<Object> {
+
+		@Override
+		public Object createObject() {
+			return new Object();
+		}
+
+	}
+
+	private static class StringBuilderPool extends Pool<StringBuilder> {
+
+		private final int capacity;
+
+		public StringBuilderPool(int capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public StringBuilder createObject() {
+			return new StringBuilder(capacity);
+		}
+
+	}
+
+}
@@ -14,6 +14,9 @@
  */
 package com.miviclin.collections;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 
@@ -182,6 +185,40 @@ public class PoolTest {
 		Assert.assertTrue(empty);
 	}
 
+	@Test
+	@Parameters({
+			"0, 0",
+			"3, 1",
+			"3, 3",
+			"3, 5" })
+	public void trim_poolWithAnyNumberOfElements_sizeIsAtMostMaxSize(int poolSize, int maxSize) throws Exception {
+		Pool<TestUser> pool = createPoolOfTestUsers(poolSize);
+
+		pool.trim(maxSize);
+		int size = pool.size();
+
+		Assert.assertEquals(Math.min(poolSize, maxSize), size);
+	}
+
+	@Test
+	public void trim_poolWithMoreElementsThanMaxSize_keepsTheMostRecentlyRecycledElements() throws Exception {
+		Pool<TestUser> pool = createPoolOfTestUsers(3);
+
+		TestUser testUser = new TestUser("testName", "testPassword");
+		pool.recycle(testUser);
+		pool.trim(1);
+		TestUser obtainedTestUser = pool.obtain();
+
+		Assert.assertEquals(testUser, obtainedTestUser);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void trim_negativeMaxSize_throwsIllegalArgumentException() throws Exception {
+		Pool<TestUser> pool = createEmptyPoolOfTestUsers();
+
+		pool.trim(-1);
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void recycle_nullObject_throwsIllegalArgumentException() throws Exception {
 		Pool<TestUser> pool = createEmptyPoolOfTestUsers();
@@ -189,6 +226,137 @@ public class PoolTest {
 		pool.recycle(null);
 	}
 
+	@Test
+	@Parameters({ "0, 3", "2, 3", "3, 3", "5, 3", "5, 0" })
+	public void obtainBatchIntoArray_poolWithAnyNumberOfElements_takesPooledElementsAndCreatesTheShortfall(int poolSize,
+			int numObjects) throws Exception {
+
+		Pool<TestUser> pool = createPoolOfTestUsers(poolSize);
+		TestUser[] dst = new TestUser[numObjects + 1];
+
+		pool.obtain(dst, numObjects);
+
+		for (int i = 0; i < numObjects; i++) {
+			Assert.assertNotNull(dst[i]);
+		}
+		Assert.assertNull(dst[numObjects]);
+		Assert.assertEquals(Math.max(0, poolSize - numObjects), pool.size());
+	}
+
+	@Test
+	@Parameters({ "0, 3", "2, 3", "5, 3" })
+	public void obtainBatchIntoCollection_poolWithAnyNumberOfElements_addsTheRequestedNumberOfObjects(int poolSize,
+			int numObjects) throws Exception {
+
+		Pool<TestUser> pool = createPoolOfTestUsers(poolSize);
+		List<TestUser> dst = new ArrayList<>();
+
+		pool.obtain(dst, numObjects);
+
+		Assert.assertEquals(numObjects, dst.size());
+		Assert.assertEquals(Math.max(0, poolSize - numObjects), pool.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void obtainBatchIntoArray_moreObjectsThanTheArrayLength_throwsIllegalArgumentException() throws Exception {
+		Pool<TestUser> pool = createPoolOfTestUsers(0);
+
+		pool.obtain(new TestUser[2], 3);
+	}
+
+	@Test
+	public void recycleAllFromArray_poolableObjects_resetsAndAddsAllOfThem() throws Exception {
+		Pool<PoolableTestUser> pool = createPoolOfPoolableTestUsers(1);
+		PoolableTestUser[] objects = new PoolableTestUser[20];
+		for (int i = 0; i < objects.length; i++) {
+			objects[i] = new PoolableTestUser("Name " + i, "Password " + i);
+		}
+
+		pool.recycleAll(objects);
+
+		Assert.assertEquals(21, pool.size());
+		for (PoolableTestUser object : objects) {
+			Assert.assertEquals(PoolableTestUser.DEFAULT_RESETTED_NAME, object.getName());
+		}
+	}
+
+	@Test
+	public void recycleAllFromArray_arrayWithNullObject_addsNoObject() throws Exception {
+		Pool<TestUser> pool = createPoolOfTestUsers(0);
+
+		try {
+			pool.recycleAll(new TestUser[] { new TestUser("Name", "Password"), null });
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+
+		Assert.assertTrue(pool.isEmpty());
+	}
+
+	@Test
+	public void recycleAllFromIterable_anyObjects_addsAllOfThem() throws Exception {
+		Pool<TestUser> pool = createPoolOfTestUsers(2);
+		List<TestUser> objects = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			objects.add(new TestUser("Name " + i, "Password " + i));
+		}
+
+		pool.recycleAll(objects);
+
+		Assert.assertEquals(22, pool.size());
+		Assert.assertSame(objects.get(19), pool.obtain());
+	}
+
+	@Test
+	public void obtainBatchAfterRecycleAll_sameArray_returnsTheRecycledObjects() throws Exception {
+		Pool<TestUser> pool = createPoolOfTestUsers(0);
+		TestUser[] objects = new TestUser[] { new TestUser("N0", "P0"), new TestUser("N1", "P1") };
+		TestUser[] dst = new TestUser[2];
+
+		pool.recycleAll(objects);
+		pool.obtain(dst, 2);
+
+		Assert.assertArrayEquals(objects, dst);
+	}
+
+	@Test
+	public void obtain_emptyPoolWithMonitor_notifiesObjectCreation() throws Exception {
+		Pool<TestUser> pool = createEmptyPoolOfTestUsers();
+		RecordingMonitor monitor = new RecordingMonitor();
+		pool.setName("users");
+		pool.setMonitor(monitor);
+
+		pool.obtain();
+
+		Assert.assertEquals(1, monitor.numObjectsCreated);
+		Assert.assertEquals("users", monitor.lastName);
+	}
+
+	@Test
+	@Parameters({ "1", "3" })
+	public void obtain_poolWithOneOrMoreElementsAndMonitor_doesNotNotifyObjectCreation(int poolSize) throws Exception {
+		Pool<TestUser> pool = createPoolOfTestUsers(poolSize);
+		RecordingMonitor monitor = new RecordingMonitor();
+		pool.setMonitor(monitor);
+
+		pool.obtain();
+
+		Assert.assertEquals(0, monitor.numObjectsCreated);
+	}
+
+	@Test
+	@Parameters({ "0", "1", "3" })
+	public void reportSize_poolWithMonitor_reportsTheSizeOfThePool(int poolSize) throws Exception {
+		Pool<TestUser> pool = createPoolOfTestUsers(poolSize);
+		RecordingMonitor monitor = new RecordingMonitor();
+		pool.setMonitor(monitor);
+
+		pool.reportSize();
+
+		Assert.assertEquals(poolSize, monitor.lastSize);
+		Assert.assertEquals(pool.getName(), monitor.lastName);
+	}
+
 	private static Pool<TestUser> createEmptyPoolOfTestUsers() {
 		return new TestUserPool();
 	}
@@ -228,6 +396,41 @@ public class PoolTest {
 
 	}
 
+	static class RecordingMonitor implements PoolMonitor {
+
+		int numObjectsCreated;
+		int numNodesCreated;
+		int lastSize = -1;
+		int lastNumPooledNodes = -1;
+		String lastName;
+
+		@Override
+		public void objectCreated(String poolName, long durationNanos) {
+			numObjectsCreated++;
+			lastName = poolName;
+		}
+
+		@Override
+		public void nodeCreated(String queueName) {
+			numNodesCreated++;
+			lastName = queueName;
+		}
+
+		@Override
+		public void poolSizeSampled(String poolName, int size) {
+			lastName = poolName;
+			lastSize = size;
+		}
+
+		@Override
+		public void queueSizeSampled(String queueName, int size, int numPooledNodes) {
+			lastName = queueName;
+			lastSize = size;
+			lastNumPooledNodes = numPooledNodes;
+		}
+
+	}
+
 	private static class TestUser {
 
 		public static String DEFAULT_NAME = "username";
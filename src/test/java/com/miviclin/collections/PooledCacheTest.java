@@ -0,0 +1,227 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class PooledCacheTest {
+
+	@Test
+	@Parameters({ "LRU", "SAMPLED_LFU" })
+	public void get_existingKey_returnsTheMappedValue(PooledCache.EvictionPolicy evictionPolicy) throws Exception {
+		PooledCache<String, StringBuilder> cache = new PooledCache<>(4, new StringBuilderPool(), evictionPolicy);
+		StringBuilder value = new StringBuilder("V0");
+
+		cache.put("K0", value);
+
+		Assert.assertSame(value, cache.get("K0"));
+		Assert.assertNull(cache.get("K1"));
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	@Parameters({ "1", "3", "50" })
+	public void put_moreKeysThanCapacity_sizeNeverExceedsCapacity(int capacity) throws Exception {
+		PooledCache<Integer, StringBuilder> cache = new PooledCache<>(capacity, new StringBuilderPool());
+
+		for (int i = 0; i < capacity * 3; i++) {
+			cache.put(i, new StringBuilder());
+		}
+
+		Assert.assertEquals(capacity, cache.size());
+		Assert.assertEquals(capacity * 2, cache.getNumEvictions());
+	}
+
+	@Test
+	public void put_fullLruCache_evictsTheLeastRecentlyUsedEntry() throws Exception {
+		PooledCache<String, StringBuilder> cache = new PooledCache<>(3, new StringBuilderPool());
+		cache.put("K0", new StringBuilder());
+		cache.put("K1", new StringBuilder());
+		cache.put("K2", new StringBuilder());
+
+		cache.get("K0");
+		cache.put("K3", new StringBuilder());
+
+		Assert.assertTrue(cache.containsKey("K0"));
+		Assert.assertFalse(cache.containsKey("K1"));
+		Assert.assertTrue(cache.containsKey("K2"));
+		Assert.assertTrue(cache.containsKey("K3"));
+	}
+
+	@Test
+	public void put_fullLfuCache_evictsTheLeastFrequentlyUsedEntry() throws Exception {
+		PooledCache<String, StringBuilder> cache = new PooledCache<>(3, new StringBuilderPool(),
+				PooledCache.EvictionPolicy.SAMPLED_LFU);
+		cache.put("K0", new StringBuilder());
+		cache.put("K1", new StringBuilder());
+		cache.put("K2", new StringBuilder());
+		for (int i = 0; i < 3; i++) {
+			cache.get("K0");
+			cache.get("K2");
+		}
+
+		cache.put("K3", new StringBuilder());
+
+		Assert.assertTrue(cache.containsKey("K0"));
+		Assert.assertFalse(cache.containsKey("K1"));
+		Assert.assertTrue(cache.containsKey("K2"));
+	}
+
+	@Test
+	public void put_largeLfuCache_keepsTheHotEntries() throws Exception {
+		PooledCache<Integer, StringBuilder> cache = new PooledCache<>(100, new StringBuilderPool(),
+				PooledCache.EvictionPolicy.SAMPLED_LFU);
+		for (int i = 0; i < 10; i++) {
+			cache.put(i, new StringBuilder());
+		}
+
+		for (int i = 10; i < 1000; i++) {
+			for (int hotKey = 0; hotKey < 10; hotKey++) {
+				cache.get(hotKey);
+			}
+			cache.put(i, new StringBuilder());
+		}
+
+		for (int hotKey = 0; hotKey < 10; hotKey++) {
+			Assert.assertTrue(cache.containsKey(hotKey));
+		}
+	}
+
+	@Test
+	public void evict_anyEntry_recyclesItsValueIntoTheValuePool() throws Exception {
+		StringBuilderPool valuePool = new StringBuilderPool();
+		PooledCache<String, StringBuilder> cache = new PooledCache<>(1, valuePool);
+		StringBuilder evictedValue = new StringBuilder("V0");
+		cache.put("K0", evictedValue);
+
+		cache.put("K1", cache.getValuePool().obtain());
+
+		Assert.assertEquals(1, valuePool.size());
+		Assert.assertSame(evictedValue, valuePool.obtain());
+	}
+
+	@Test
+	public void put_existingKey_returnsThePreviousValueWithoutRecyclingIt() throws Exception {
+		StringBuilderPool valuePool = new StringBuilderPool();
+		PooledCache<String, StringBuilder> cache = new PooledCache<>(2, valuePool);
+		StringBuilder previousValue = new StringBuilder("V0");
+		cache.put("K0", previousValue);
+
+		StringBuilder returnedValue = cache.put("K0", new StringBuilder("V1"));
+
+		Assert.assertSame(previousValue, returnedValue);
+		Assert.assertEquals(0, valuePool.size());
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void remove_existingKey_returnsTheValueWithoutRecyclingIt() throws Exception {
+		StringBuilderPool valuePool = new StringBuilderPool();
+		PooledCache<String, StringBuilder> cache = new PooledCache<>(2, valuePool);
+		StringBuilder value = new StringBuilder("V0");
+		cache.put("K0", value);
+		cache.put("K1", new StringBuilder("V1"));
+
+		StringBuilder removedValue = cache.remove("K0");
+
+		Assert.assertSame(value, removedValue);
+		Assert.assertEquals(0, valuePool.size());
+		Assert.assertFalse(cache.containsKey("K0"));
+		Assert.assertTrue(cache.containsKey("K1"));
+	}
+
+	@Test
+	public void clear_nonEmptyCache_recyclesAllTheValues() throws Exception {
+		StringBuilderPool valuePool = new StringBuilderPool();
+		PooledCache<String, StringBuilder> cache = new PooledCache<>(4, valuePool);
+		cache.put("K0", new StringBuilder());
+		cache.put("K1", new StringBuilder());
+
+		cache.clear();
+
+		Assert.assertEquals(0, cache.size());
+		Assert.assertEquals(2, valuePool.size());
+		Assert.assertNull(cache.get("K0"));
+	}
+
+	@Test
+	public void put_collidingKeys_allKeysAreFound() throws Exception {
+		PooledCache<CollidingKey, StringBuilder> cache = new PooledCache<>(8, new StringBuilderPool());
+		for (int i = 0; i < 8; i++) {
+			cache.put(new CollidingKey(i), new StringBuilder("V" + i));
+		}
+
+		cache.remove(new CollidingKey(3));
+
+		for (int i = 0; i < 8; i++) {
+			Assert.assertEquals(i != 3, cache.containsKey(new CollidingKey(i)));
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void put_nullKey_throwsNullPointerException() throws Exception {
+		PooledCache<String, StringBuilder> cache = new PooledCache<>(4, new StringBuilderPool());
+
+		cache.put(null, new StringBuilder());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void put_nullValue_throwsNullPointerException() throws Exception {
+		PooledCache<String, StringBuilder> cache = new PooledCache<>(4, new StringBuilderPool());
+
+		cache.put("K0", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createCache_zeroCapacity_throwsIllegalArgumentException() throws Exception {
+		new PooledCache<>(0, new StringBuilderPool());
+	}
+
+	private static class StringBuilderPool extends Pool<StringBuilder> {
+
+		@Override
+		public StringBuilder createObject() {
+			return new StringBuilder();
+		}
+
+	}
+
+	private static class CollidingKey {
+
+		private final int id;
+
+		public CollidingKey(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof CollidingKey) && ((CollidingKey) obj).id == id;
+		}
+
+	}
+
+}
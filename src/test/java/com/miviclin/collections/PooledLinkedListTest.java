@@ -0,0 +1,287 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.ListIterator;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class PooledLinkedListTest {
+
+	@Test
+	public void createEmptyList_byDefault_sizeIsZero() throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>();
+
+		int size = list.size();
+
+		Assert.assertEquals(0, size);
+	}
+
+	@Test
+	public void firstHandle_emptyList_returnsInvalidHandle() throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>();
+
+		long handle = list.firstHandle();
+
+		Assert.assertEquals(PooledLinkedList.INVALID_HANDLE, handle);
+	}
+
+	@Test
+	@Parameters({ "0", "1", "3" })
+	public void append_listWithAnyNumberOfElements_elementIsLast(int listSize) throws Exception {
+		PooledLinkedList<String> list = createPooledLinkedList(listSize);
+
+		list.append("New Element");
+		String last = list.get(list.size() - 1);
+
+		Assert.assertEquals("New Element", last);
+	}
+
+	@Test
+	@Parameters({ "0", "1", "3" })
+	public void prepend_listWithAnyNumberOfElements_elementIsFirst(int listSize) throws Exception {
+		PooledLinkedList<String> list = createPooledLinkedList(listSize);
+
+		list.prepend("New Element");
+		String first = list.get(0);
+
+		Assert.assertEquals("New Element", first);
+	}
+
+	@Test
+	public void getByHandle_validHandle_returnsTheElement() throws Exception {
+		PooledLinkedList<String> list = createPooledLinkedList(3);
+
+		long handle = list.append("New Element");
+		String element = list.getByHandle(handle);
+
+		Assert.assertEquals("New Element", element);
+	}
+
+	@Test
+	@Parameters({ "0", "1", "2" })
+	public void removeByHandle_listWithThreeElements_removesOnlyThatElement(int indexToRemove) throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>();
+		long[] handles = new long[3];
+		for (int i = 0; i < handles.length; i++) {
+			handles[i] = list.append("E" + i);
+		}
+
+		String removedElement = list.removeByHandle(handles[indexToRemove]);
+
+		Assert.assertEquals("E" + indexToRemove, removedElement);
+		Assert.assertEquals(2, list.size());
+		Assert.assertFalse(list.contains(removedElement));
+	}
+
+	@Test
+	public void removeByHandle_onlyElement_listIsEmpty() throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>();
+
+		long handle = list.append("E0");
+		list.removeByHandle(handle);
+
+		Assert.assertTrue(list.isEmpty());
+		Assert.assertEquals(PooledLinkedList.INVALID_HANDLE, list.firstHandle());
+		Assert.assertEquals(PooledLinkedList.INVALID_HANDLE, list.lastHandle());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void removeByHandle_staleHandle_throwsIllegalArgumentException() throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>();
+
+		long handle = list.append("E0");
+		list.removeByHandle(handle);
+		list.append("E1");
+		list.removeByHandle(handle);
+	}
+
+	@Test
+	public void isValidHandle_handleOfRecycledNode_returnsFalse() throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>(1);
+
+		long staleHandle = list.append("E0");
+		list.removeByHandle(staleHandle);
+		long newHandle = list.append("E1");
+
+		Assert.assertFalse(list.isValidHandle(staleHandle));
+		Assert.assertTrue(list.isValidHandle(newHandle));
+	}
+
+	@Test
+	public void insertAfter_middleElement_elementIsInsertedAfterIt() throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>();
+		list.append("E0");
+		long handle = list.append("E1");
+		list.append("E2");
+
+		list.insertAfter(handle, "New Element");
+
+		Assert.assertEquals(Arrays.asList("E0", "E1", "New Element", "E2"), list);
+	}
+
+	@Test
+	public void insertAfter_lastElement_newElementIsLast() throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>();
+		long handle = list.append("E0");
+
+		long newHandle = list.insertAfter(handle, "New Element");
+
+		Assert.assertEquals(newHandle, list.lastHandle());
+	}
+
+	@Test
+	public void insertBefore_firstElement_newElementIsFirst() throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>();
+		long handle = list.append("E0");
+
+		long newHandle = list.insertBefore(handle, "New Element");
+
+		Assert.assertEquals(newHandle, list.firstHandle());
+		Assert.assertEquals(Arrays.asList("New Element", "E0"), list);
+	}
+
+	@Test
+	@Parameters({ "1", "3" })
+	public void nextHandle_walkFromFirstHandle_visitsAllElementsInOrder(int listSize) throws Exception {
+		PooledLinkedList<String> list = createPooledLinkedList(listSize);
+
+		int numVisited = 0;
+		for (long h = list.firstHandle(); h != PooledLinkedList.INVALID_HANDLE; h = list.nextHandle(h)) {
+			Assert.assertEquals("Element " + numVisited, list.getByHandle(h));
+			numVisited++;
+		}
+
+		Assert.assertEquals(listSize, numVisited);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void append_nullObject_throwsNullPointerException() throws Exception {
+		PooledLinkedList<String> list = new PooledLinkedList<>();
+
+		list.append(null);
+	}
+
+	@Test
+	public void iteratorRemove_removeAllElements_listIsEmpty() throws Exception {
+		PooledLinkedList<String> list = createPooledLinkedList(3);
+
+		Iterator<String> iterator = list.iterator();
+		while (iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+
+		Assert.assertTrue(list.isEmpty());
+		Assert.assertEquals(PooledLinkedList.INVALID_HANDLE, list.lastHandle());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void iteratorNext_nextElementRemovedByHandle_throwsConcurrentModificationException() throws Exception {
+		PooledLinkedList<Integer> list = new PooledLinkedList<>();
+		list.append(1);
+		long handle = list.append(2);
+		list.append(3);
+		Iterator<Integer> iterator = list.iterator();
+		iterator.next();
+
+		list.removeByHandle(handle);
+		list.append(4);
+		iterator.next();
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void iteratorRemove_elementInsertedByHandle_throwsConcurrentModificationException() throws Exception {
+		PooledLinkedList<Integer> list = new PooledLinkedList<>();
+		long handle = list.append(1);
+		Iterator<Integer> iterator = list.iterator();
+		iterator.next();
+
+		list.insertAfter(handle, 2);
+		iterator.remove();
+	}
+
+	@Test
+	public void iteratorRemove_whileIterating_doesNotInvalidateTheIterator() throws Exception {
+		PooledLinkedList<Integer> list = new PooledLinkedList<>();
+		for (int i = 0; i < 4; i++) {
+			list.append(i);
+		}
+
+		Iterator<Integer> iterator = list.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() % 2 == 0) {
+				iterator.remove();
+			}
+		}
+
+		Assert.assertEquals(Arrays.asList(1, 3), list);
+	}
+
+	@Test
+	public void listIteratorAdd_middleOfList_elementIsInserted() throws Exception {
+		PooledLinkedList<String> list = createPooledLinkedList(2);
+
+		ListIterator<String> iterator = list.listIterator(1);
+		iterator.add("New Element");
+
+		Assert.assertEquals(Arrays.asList("Element 0", "New Element", "Element 1"), list);
+	}
+
+	@Test
+	public void listIteratorRemove_afterPrevious_removesThePreviousElement() throws Exception {
+		PooledLinkedList<String> list = createPooledLinkedList(3);
+
+		ListIterator<String> iterator = list.listIterator(list.size());
+		iterator.previous();
+		iterator.remove();
+
+		Assert.assertEquals(Arrays.asList("Element 0", "Element 1"), list);
+		Assert.assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void appendAfterClear_listWithPooledNodes_oldHandlesAreStale() throws Exception {
+		PooledLinkedList<String> list = createPooledLinkedList(3);
+
+		long firstHandle = list.firstHandle();
+		long lastHandle = list.lastHandle();
+		list.clear();
+		for (int i = 0; i < 3; i++) {
+			list.append("New Element " + i);
+		}
+
+		Assert.assertFalse(list.isValidHandle(firstHandle));
+		Assert.assertFalse(list.isValidHandle(lastHandle));
+	}
+
+	private static PooledLinkedList<String> createPooledLinkedList(int numElements) {
+		PooledLinkedList<String> list = new PooledLinkedList<>(numElements);
+		for (int i = 0; i < numElements; i++) {
+			list.append("Element " + i);
+		}
+		return list;
+	}
+
+}
@@ -14,11 +14,22 @@
  */
 package com.miviclin.collections;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
@@ -372,6 +383,325 @@ public class PooledLinkedQueueTest {
 		iterator.remove();
 	}
 
+	@Test
+	@Parameters({ "0", "1", "2" })
+	public void iteratorRemove_anyElement_headTailAndOrderRemainConsistent(int removedIndex) throws Exception {
+		PooledLinkedQueue<String> queue = createQueueFromCollection(Arrays.asList("E0", "E1", "E2"));
+
+		Iterator<String> iterator = queue.iterator();
+		for (int i = 0; i <= removedIndex; i++) {
+			iterator.next();
+		}
+		iterator.remove();
+		queue.offer("E3");
+		List<String> expectedElements = new ArrayList<>(Arrays.asList("E0", "E1", "E2", "E3"));
+		expectedElements.remove(removedIndex);
+
+		Assert.assertEquals(expectedElements, new ArrayList<>(queue));
+		Assert.assertEquals(expectedElements.get(0), queue.peek());
+	}
+
+	@Test
+	@Parameters({
+			"E0 E1 E2 E3 E4, E1 E2, E0 E3 E4",
+			"E0 E1 E2 E3 E4, E0 E1, E2 E3 E4",
+			"E0 E1 E2 E3 E4, E3 E4, E0 E1 E2",
+			"E0 E1 E2 E3 E4, E0 E2 E4, E1 E3",
+			"E0 E1 E2 E3 E4, E0 E1 E2 E3 E4, -",
+			"E0 E1 E2 E3 E4, E5, E0 E1 E2 E3 E4" })
+	public void removeAll_anyRunsOfElements_removesThemAndKeepsTheOrder(String elements, String removed,
+			String expected) throws Exception {
+
+		PooledLinkedQueue<String> queue = createQueueFromCollection(Arrays.asList(elements.split(" ")));
+
+		queue.removeAll(Arrays.asList(removed.split(" ")));
+		queue.offer("E9");
+
+		List<String> expectedElements = new ArrayList<>();
+		if (!expected.equals("-")) {
+			expectedElements.addAll(Arrays.asList(expected.split(" ")));
+		}
+		expectedElements.add("E9");
+		Assert.assertEquals(expectedElements, new ArrayList<>(queue));
+		Assert.assertEquals(expectedElements.size(), queue.size());
+		Assert.assertEquals(expectedElements.get(0), queue.peek());
+	}
+
+	@Test
+	public void retainAll_someElements_removesTheOtherElements() throws Exception {
+		PooledLinkedQueue<String> queue = createQueueFromCollection(Arrays.asList("E0", "E1", "E2", "E3"));
+
+		boolean changed = queue.retainAll(Arrays.asList("E1", "E3"));
+
+		Assert.assertTrue(changed);
+		Assert.assertEquals(Arrays.asList("E1", "E3"), new ArrayList<>(queue));
+	}
+
+	@Test
+	public void removeMatching_noMatchingElements_returnsFalse() throws Exception {
+		PooledLinkedQueue<String> queue = createPooledLinkedQueue(3);
+
+		boolean changed = queue.removeMatching(new PooledLinkedQueue.Filter<String>() {
+
+			@Override
+			public boolean matches(String element) {
+				return false;
+			}
+		});
+
+		Assert.assertFalse(changed);
+		Assert.assertEquals(3, queue.size());
+	}
+
+	@Test
+	@Parameters({ "0", "1", "10" })
+	public void removeMatching_allElements_emptiesTheQueueAndRecyclesTheNodes(int queueSize) throws Exception {
+		PooledLinkedQueue<String> queue = createPooledLinkedQueue(queueSize);
+		PoolTest.RecordingMonitor monitor = new PoolTest.RecordingMonitor();
+		queue.setMonitor(monitor);
+
+		queue.removeMatching(new PooledLinkedQueue.Filter<String>() {
+
+			@Override
+			public boolean matches(String element) {
+				return true;
+			}
+		});
+		for (int i = 0; i < queueSize; i++) {
+			queue.offer("E" + i);
+		}
+
+		Assert.assertEquals(queueSize, queue.size());
+		Assert.assertEquals(0, monitor.numNodesCreated);
+	}
+
+	@Test
+	@Parameters({ "NONE", "IDENTITY", "EQUALITY" })
+	public void remove_duplicatedElement_removesTheFirstOccurrence(PooledLinkedQueue.IndexMode indexMode)
+			throws Exception {
+
+		PooledLinkedQueue<String> queue = new PooledLinkedQueue<>(4, indexMode);
+		queue.offer("A");
+		queue.offer("B");
+		queue.offer("A");
+		queue.offer("C");
+
+		boolean removedFirst = queue.remove("A");
+		boolean containsAfterFirstRemoval = queue.contains("A");
+		boolean removedSecond = queue.remove("A");
+		boolean removedThird = queue.remove("A");
+
+		Assert.assertTrue(removedFirst);
+		Assert.assertTrue(containsAfterFirstRemoval);
+		Assert.assertTrue(removedSecond);
+		Assert.assertFalse(removedThird);
+		Assert.assertFalse(queue.contains("A"));
+		Assert.assertEquals(Arrays.asList("B", "C"), new ArrayList<>(queue));
+	}
+
+	@Test
+	@Parameters({ "IDENTITY, false", "EQUALITY, true" })
+	public void contains_equalButNotIdenticalElement_dependsOnTheIndexMode(PooledLinkedQueue.IndexMode indexMode,
+			boolean expectedResult) throws Exception {
+
+		PooledLinkedQueue<String> queue = new PooledLinkedQueue<>(4, indexMode);
+		queue.offer(new String("A"));
+
+		boolean contains = queue.contains(new String("A"));
+
+		Assert.assertEquals(expectedResult, contains);
+	}
+
+	@Test
+	@Parameters({ "IDENTITY", "EQUALITY" })
+	public void contains_nullObject_returnsFalse(PooledLinkedQueue.IndexMode indexMode) throws Exception {
+		PooledLinkedQueue<String> queue = new PooledLinkedQueue<>(4, indexMode);
+		queue.offer("A");
+
+		Assert.assertFalse(queue.contains(null));
+		Assert.assertFalse(queue.remove(null));
+	}
+
+	@Test
+	@Parameters({ "IDENTITY", "EQUALITY" })
+	public void indexedQueue_randomOperations_behavesLikeALinkedList(PooledLinkedQueue.IndexMode indexMode)
+			throws Exception {
+
+		Integer[] values = new Integer[40];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Integer.valueOf(i * 1000);
+		}
+		PooledLinkedQueue<Integer> queue = new PooledLinkedQueue<>(0, indexMode, 0.75f);
+		LinkedList<Integer> expected = new LinkedList<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 20000; i++) {
+			Integer value = values[random.nextInt(values.length)];
+			switch (random.nextInt(6)) {
+			case 0:
+			case 1:
+				queue.offer(value);
+				expected.offer(value);
+				break;
+			case 2:
+				Assert.assertSame(expected.poll(), queue.poll());
+				break;
+			case 3:
+				Assert.assertEquals(expected.remove(value), queue.remove(value));
+				break;
+			case 4:
+				Iterator<Integer> iterator = queue.iterator();
+				Iterator<Integer> expectedIterator = expected.iterator();
+				while (iterator.hasNext()) {
+					iterator.next();
+					if (expectedIterator.next() == value) {
+						iterator.remove();
+						expectedIterator.remove();
+					}
+				}
+				break;
+			default:
+				queue.removeAll(Arrays.asList(value));
+				expected.removeAll(Arrays.asList(value));
+				break;
+			}
+			Assert.assertEquals(expected.contains(value), queue.contains(value));
+		}
+
+		Assert.assertEquals(expected, new ArrayList<>(queue));
+		for (Integer value : values) {
+			Assert.assertEquals(expected.contains(value), queue.contains(value));
+		}
+	}
+
+	@Test
+	public void indexedQueue_collidingElements_allRemainReachable() throws Exception {
+		PooledLinkedQueue<CollidingElement> queue = new PooledLinkedQueue<>(0,
+				PooledLinkedQueue.IndexMode.EQUALITY);
+		for (int i = 0; i < 50; i++) {
+			queue.offer(new CollidingElement(i));
+		}
+
+		for (int i = 0; i < 50; i += 3) {
+			queue.remove(new CollidingElement(i));
+		}
+
+		for (int i = 0; i < 50; i++) {
+			Assert.assertEquals(i % 3 != 0, queue.contains(new CollidingElement(i)));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@Parameters({ "0", "1", "-0.5" })
+	public void createIndexedQueue_loadFactorOutOfRange_throwsIllegalArgumentException(float loadFactor)
+			throws Exception {
+
+		new PooledLinkedQueue<String>(4, PooledLinkedQueue.IndexMode.IDENTITY, loadFactor);
+	}
+
+	@Test
+	public void offer_noPooledNodesWithMonitor_notifiesNodeCreation() throws Exception {
+		PooledLinkedQueue<String> queue = new PooledLinkedQueue<>(1);
+		PoolTest.RecordingMonitor monitor = new PoolTest.RecordingMonitor();
+		queue.setName("events");
+		queue.setMonitor(monitor);
+
+		queue.offer("E0");
+		queue.offer("E1");
+		queue.offer("E2");
+
+		Assert.assertEquals(2, monitor.numNodesCreated);
+		Assert.assertEquals("events", monitor.lastName);
+	}
+
+	@Test
+	public void reportSize_queueWithMonitor_reportsSizeAndPooledNodes() throws Exception {
+		PooledLinkedQueue<String> queue = new PooledLinkedQueue<>(5);
+		PoolTest.RecordingMonitor monitor = new PoolTest.RecordingMonitor();
+		queue.setMonitor(monitor);
+
+		queue.offer("E0");
+		queue.offer("E1");
+		queue.reportSize();
+
+		Assert.assertEquals(2, monitor.lastSize);
+		Assert.assertEquals(3, monitor.lastNumPooledNodes);
+	}
+
+	@Test
+	@Parameters({ "0", "1", "3", "20000" })
+	public void readFromAfterWriteTo_queueWithAnyNumberOfElements_restoresTheSameElementsInOrder(int queueSize)
+			throws Exception {
+
+		PooledLinkedQueue<String> queue = createPooledLinkedQueue(queueSize);
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		int numWritten = queue.writeTo(Channels.newChannel(outputStream), new StringCodec());
+		PooledLinkedQueue<String> restoredQueue = createEmptyPooledLinkedQueue();
+		ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+		int numRead = restoredQueue.readFrom(Channels.newChannel(inputStream), new StringCodec());
+
+		Assert.assertEquals(queueSize, numWritten);
+		Assert.assertEquals(queueSize, numRead);
+		Assert.assertArrayEquals(queue.toArray(), restoredQueue.toArray());
+	}
+
+	@Test
+	public void readFrom_nonEmptyQueue_appendsTheElementsAtTheTail() throws Exception {
+		PooledLinkedQueue<String> queue = createPooledLinkedQueue(2);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		queue.writeTo(Channels.newChannel(outputStream), new StringCodec());
+
+		ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+		queue.readFrom(Channels.newChannel(inputStream), new StringCodec());
+
+		Assert.assertArrayEquals(new String[] { "Element 0", "Element 1", "Element 0", "Element 1" }, queue.toArray());
+	}
+
+	@Test
+	public void readFrom_twoSnapshotsInTheSameChannel_readsOnlyOneSnapshotPerCall() throws Exception {
+		PooledLinkedQueue<String> firstQueue = createPooledLinkedQueue(2);
+		PooledLinkedQueue<String> secondQueue = createPooledLinkedQueue(3);
+		File file = File.createTempFile("snapshots", ".bin");
+		file.deleteOnExit();
+		try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+			firstQueue.writeTo(channel, new StringCodec());
+			long endOfFirstSnapshot = channel.position();
+			secondQueue.writeTo(channel, new StringCodec());
+			channel.position(0);
+
+			PooledLinkedQueue<String> firstRestoredQueue = createEmptyPooledLinkedQueue();
+			firstRestoredQueue.readFrom(channel, new StringCodec());
+			long positionAfterFirstRead = channel.position();
+			PooledLinkedQueue<String> secondRestoredQueue = createEmptyPooledLinkedQueue();
+			secondRestoredQueue.readFrom(channel, new StringCodec());
+
+			Assert.assertEquals(endOfFirstSnapshot, positionAfterFirstRead);
+			Assert.assertEquals(channel.size(), channel.position());
+			Assert.assertArrayEquals(firstQueue.toArray(), firstRestoredQueue.toArray());
+			Assert.assertArrayEquals(secondQueue.toArray(), secondRestoredQueue.toArray());
+		}
+	}
+
+	@Test(expected = EOFException.class)
+	public void readFrom_truncatedData_throwsEOFException() throws Exception {
+		PooledLinkedQueue<String> queue = createPooledLinkedQueue(3);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		queue.writeTo(Channels.newChannel(outputStream), new StringCodec());
+
+		byte[] data = outputStream.toByteArray();
+		ByteArrayInputStream inputStream = new ByteArrayInputStream(Arrays.copyOf(data, data.length - 1));
+		createEmptyPooledLinkedQueue().readFrom(Channels.newChannel(inputStream), new StringCodec());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void writeTo_elementLargerThanTransferBuffer_throwsIllegalArgumentException() throws Exception {
+		PooledLinkedQueue<String> queue = createEmptyPooledLinkedQueue();
+		queue.offer(new String(new char[PooledLinkedQueue.TRANSFER_BUFFER_SIZE]));
+
+		queue.writeTo(Channels.newChannel(new ByteArrayOutputStream()), new StringCodec());
+	}
+
 	private static PooledLinkedQueue<String> createEmptyPooledLinkedQueue() {
 		return new PooledLinkedQueue<>();
 	}
@@ -388,4 +718,47 @@ public class PooledLinkedQueueTest {
 		return new PooledLinkedQueue<>(collection);
 	}
 
+	private static class CollidingElement {
+
+		private final int id;
+
+		public CollidingElement(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id % 2;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof CollidingElement) && ((CollidingElement) obj).id == id;
+		}
+
+	}
+
+	private static class StringCodec implements PooledLinkedQueue.Codec<String> {
+
+		private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+		@Override
+		public int encodedSize(String element) {
+			return element.getBytes(UTF_8).length;
+		}
+
+		@Override
+		public void encode(String element, ByteBuffer buffer) {
+			buffer.put(element.getBytes(UTF_8));
+		}
+
+		@Override
+		public String decode(ByteBuffer buffer) {
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return new String(bytes, UTF_8);
+		}
+
+	}
+
 }
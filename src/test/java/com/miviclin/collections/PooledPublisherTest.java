@@ -0,0 +1,241 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class PooledPublisherTest {
+
+	@Test
+	public void offer_subscriberWithoutDemand_itemIsBuffered() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+		TestSubscriber subscriber = new TestSubscriber(0);
+		publisher.subscribe(subscriber);
+
+		publisher.offer("E0");
+
+		Assert.assertTrue(subscriber.items.isEmpty());
+		Assert.assertEquals(1, publisher.getMaxLag());
+	}
+
+	@Test
+	@Parameters({ "1", "2", "5" })
+	public void request_afterItemsAreBuffered_deliversUpToTheRequestedItems(int numRequested) throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+		TestSubscriber subscriber = new TestSubscriber(0);
+		publisher.subscribe(subscriber);
+		publisher.offer("E0");
+		publisher.offer("E1");
+		publisher.offer("E2");
+
+		subscriber.subscription.request(numRequested);
+
+		Assert.assertEquals(Math.min(numRequested, 3), subscriber.items.size());
+	}
+
+	@Test
+	public void offer_subscriberWithDemand_itemIsDeliveredRightAway() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+		TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+		publisher.subscribe(subscriber);
+
+		publisher.offer("E0");
+		publisher.offer("E1");
+
+		Assert.assertEquals(Arrays.asList("E0", "E1"), subscriber.items);
+		Assert.assertEquals(0, publisher.getMaxLag());
+	}
+
+	@Test
+	public void offer_bufferOfSlowSubscriberIsFull_returnsFalse() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(2);
+		TestSubscriber fastSubscriber = new TestSubscriber(Long.MAX_VALUE);
+		TestSubscriber slowSubscriber = new TestSubscriber(0);
+		publisher.subscribe(fastSubscriber);
+		publisher.subscribe(slowSubscriber);
+
+		boolean firstAccepted = publisher.offer("E0");
+		boolean secondAccepted = publisher.offer("E1");
+		boolean thirdAccepted = publisher.offer("E2");
+
+		Assert.assertTrue(firstAccepted);
+		Assert.assertTrue(secondAccepted);
+		Assert.assertFalse(thirdAccepted);
+		Assert.assertEquals(Arrays.asList("E0", "E1"), fastSubscriber.items);
+	}
+
+	@Test
+	public void offer_afterSlowSubscriberRequests_isAcceptedAgain() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(1);
+		TestSubscriber subscriber = new TestSubscriber(0);
+		publisher.subscribe(subscriber);
+
+		publisher.offer("E0");
+		boolean acceptedWhileFull = publisher.offer("E1");
+		subscriber.subscription.request(1);
+		boolean acceptedAfterRequest = publisher.offer("E1");
+
+		Assert.assertFalse(acceptedWhileFull);
+		Assert.assertTrue(acceptedAfterRequest);
+	}
+
+	@Test
+	public void request_fromWithinOnNext_keepsDeliveringInOrder() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+		TestSubscriber subscriber = new TestSubscriber(0);
+		subscriber.requestOnNext = true;
+		publisher.subscribe(subscriber);
+		publisher.offer("E0");
+		publisher.offer("E1");
+		publisher.offer("E2");
+
+		subscriber.subscription.request(1);
+
+		Assert.assertEquals(Arrays.asList("E0", "E1", "E2"), subscriber.items);
+	}
+
+	@Test
+	public void close_withBufferedItems_completesAfterTheItemsAreDelivered() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+		TestSubscriber subscriber = new TestSubscriber(0);
+		publisher.subscribe(subscriber);
+		publisher.offer("E0");
+
+		publisher.close();
+		boolean completedBeforeRequest = subscriber.completed;
+		subscriber.subscription.request(1);
+
+		Assert.assertFalse(completedBeforeRequest);
+		Assert.assertTrue(subscriber.completed);
+		Assert.assertEquals(Arrays.asList("E0"), subscriber.items);
+	}
+
+	@Test
+	public void closeExceptionally_emptyBuffer_signalsTheError() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+		TestSubscriber subscriber = new TestSubscriber(1);
+		publisher.subscribe(subscriber);
+
+		RuntimeException error = new RuntimeException();
+		publisher.closeExceptionally(error);
+
+		Assert.assertSame(error, subscriber.error);
+		Assert.assertEquals(0, publisher.getNumSubscribers());
+	}
+
+	@Test
+	public void subscribe_closedPublisher_completesRightAway() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+		publisher.close();
+		TestSubscriber subscriber = new TestSubscriber(0);
+
+		publisher.subscribe(subscriber);
+
+		Assert.assertTrue(subscriber.completed);
+	}
+
+	@Test
+	public void cancel_slowSubscriber_noLongerPushesBack() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(1);
+		TestSubscriber subscriber = new TestSubscriber(0);
+		publisher.subscribe(subscriber);
+		publisher.offer("E0");
+
+		subscriber.subscription.cancel();
+		boolean accepted = publisher.offer("E1");
+
+		Assert.assertTrue(accepted);
+		Assert.assertEquals(0, publisher.getNumSubscribers());
+	}
+
+	@Test
+	public void request_nonPositive_signalsIllegalArgumentException() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+		TestSubscriber subscriber = new TestSubscriber(0);
+		publisher.subscribe(subscriber);
+
+		subscriber.subscription.request(0);
+
+		Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void offer_closedPublisher_throwsIllegalStateException() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+
+		publisher.close();
+		publisher.offer("E0");
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void offer_nullObject_throwsNullPointerException() throws Exception {
+		PooledPublisher<String> publisher = new PooledPublisher<>(4);
+
+		publisher.offer(null);
+	}
+
+	private static class TestSubscriber implements PooledPublisher.Subscriber<String> {
+
+		private final long initialRequest;
+		private PooledPublisher.Subscription subscription;
+		private List<String> items;
+		private boolean requestOnNext;
+		private boolean completed;
+		private Throwable error;
+
+		public TestSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+			this.items = new ArrayList<>();
+		}
+
+		@Override
+		public void onSubscribe(PooledPublisher.Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+
+		@Override
+		public void onNext(String item) {
+			items.add(item);
+			if (requestOnNext) {
+				subscription.request(1);
+			}
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			this.error = error;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+
+	}
+
+}
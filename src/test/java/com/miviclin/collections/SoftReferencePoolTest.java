@@ -0,0 +1,174 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class SoftReferencePoolTest {
+
+	@Test
+	@Parameters({ "1", "3" })
+	public void recycle_withinHotCapacity_objectsStayInTheHotTier(int numObjects) throws Exception {
+		SoftReferencePool<StringBuilder> pool = new StringBuilderPool(3, 10);
+
+		recycle(pool, numObjects);
+
+		Assert.assertEquals(numObjects, pool.getHotSize());
+		Assert.assertEquals(0, pool.getColdSize());
+	}
+
+	@Test
+	public void recycle_aboveHotCapacity_oldestObjectsMoveToTheColdTier() throws Exception {
+		SoftReferencePool<StringBuilder> pool = new StringBuilderPool(2, 10);
+
+		recycle(pool, 5);
+
+		Assert.assertEquals(2, pool.getHotSize());
+		Assert.assertEquals(3, pool.getColdSize());
+		Assert.assertEquals(5, pool.size());
+	}
+
+	@Test
+	public void recycle_aboveColdCapacity_oldestColdObjectsAreDiscarded() throws Exception {
+		SoftReferencePool<StringBuilder> pool = new StringBuilderPool(1, 2);
+
+		recycle(pool, 5);
+
+		Assert.assertEquals(1, pool.getHotSize());
+		Assert.assertEquals(2, pool.getColdSize());
+	}
+
+	@Test
+	public void obtain_poolWithHotAndColdObjects_returnsHotObjectsFirst() throws Exception {
+		SoftReferencePool<StringBuilder> pool = new StringBuilderPool(1, 10);
+
+		StringBuilder coldObject = new StringBuilder("cold");
+		StringBuilder hotObject = new StringBuilder("hot");
+		pool.recycle(coldObject);
+		pool.recycle(hotObject);
+		StringBuilder firstObtained = pool.obtain();
+		StringBuilder secondObtained = pool.obtain();
+
+		Assert.assertSame(hotObject, firstObtained);
+		Assert.assertSame(coldObject, secondObtained);
+	}
+
+	@Test
+	public void obtain_emptyPool_returnsNewObject() throws Exception {
+		StringBuilderPool pool = new StringBuilderPool(1, 10);
+
+		pool.obtain();
+
+		Assert.assertEquals(1, pool.numCreatedObjects);
+	}
+
+	@Test
+	public void demote_poolWithHotObjects_movesThemToTheColdTier() throws Exception {
+		SoftReferencePool<StringBuilder> pool = new StringBuilderPool(4, 10);
+
+		recycle(pool, 3);
+		pool.demote(2);
+
+		Assert.assertEquals(1, pool.getHotSize());
+		Assert.assertEquals(2, pool.getColdSize());
+	}
+
+	@Test
+	public void trim_poolWithHotAndColdObjects_removesColdObjectsFirst() throws Exception {
+		SoftReferencePool<StringBuilder> pool = new StringBuilderPool(2, 10);
+
+		recycle(pool, 5);
+		pool.trim(3);
+
+		Assert.assertEquals(2, pool.getHotSize());
+		Assert.assertEquals(1, pool.getColdSize());
+	}
+
+	@Test
+	public void recycleAll_moreObjectsThanHotCapacity_demotesTheOldestOnes() throws Exception {
+		SoftReferencePool<StringBuilder> pool = new StringBuilderPool(2, 10);
+		StringBuilder[] objects = new StringBuilder[5];
+		for (int i = 0; i < objects.length; i++) {
+			objects[i] = new StringBuilder();
+		}
+
+		pool.recycleAll(objects);
+
+		Assert.assertEquals(2, pool.getHotSize());
+		Assert.assertEquals(3, pool.getColdSize());
+	}
+
+	@Test
+	@Parameters({ "0", "2", "5" })
+	public void obtainBatch_poolWithHotAndColdObjects_createsOnlyTheShortfall(int poolSize) throws Exception {
+		StringBuilderPool pool = new StringBuilderPool(1, 10);
+		recycle(pool, poolSize);
+		StringBuilder[] dst = new StringBuilder[4];
+
+		pool.obtain(dst, 4);
+
+		Assert.assertEquals(Math.max(0, 4 - poolSize), pool.numCreatedObjects);
+		Assert.assertEquals(Math.max(0, poolSize - 4), pool.size());
+	}
+
+	@Test
+	public void getNumReclaimed_noMemoryPressure_isZero() throws Exception {
+		SoftReferencePool<StringBuilder> pool = new StringBuilderPool(1, 10);
+
+		recycle(pool, 5);
+		long numReclaimed = pool.getNumReclaimed();
+
+		Assert.assertEquals(0, numReclaimed);
+	}
+
+	@Test
+	public void clear_poolWithHotAndColdObjects_isEmpty() throws Exception {
+		SoftReferencePool<StringBuilder> pool = new StringBuilderPool(1, 10);
+
+		recycle(pool, 5);
+		pool.clear();
+
+		Assert.assertTrue(pool.isEmpty());
+	}
+
+	private static void recycle(Pool<StringBuilder> pool, int numObjects) {
+		for (int i = 0; i < numObjects; i++) {
+			pool.recycle(new StringBuilder());
+		}
+	}
+
+	private static class StringBuilderPool extends SoftReferencePool<StringBuilder> {
+
+		private int numCreatedObjects;
+
+		public StringBuilderPool(int hotCapacity, int coldCapacity) {
+			super(hotCapacity, coldCapacity);
+		}
+
+		@Override
+		public StringBuilder createObject() {
+			numCreatedObjects++;
+			return new StringBuilder();
+		}
+
+	}
+
+}
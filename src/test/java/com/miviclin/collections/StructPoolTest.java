@@ -0,0 +1,244 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class StructPoolTest {
+
+	private static final StructPool.Schema SCHEMA = new StructPool.Schema();
+	private static final int ID = SCHEMA.addIntField("id");
+	private static final int TIMESTAMP = SCHEMA.addLongField("timestamp");
+	private static final int X = SCHEMA.addFloatField("x");
+	private static final int Y = SCHEMA.addFloatField("y");
+	private static final int MASS = SCHEMA.addDoubleField("mass");
+
+	@Test
+	public void createStructPool_byDefault_isEmpty() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+
+		boolean empty = pool.isEmpty();
+
+		Assert.assertTrue(empty);
+	}
+
+	@Test
+	@Parameters({ "1", "3", "100" })
+	public void allocate_anyNumberOfStructs_sizeIsTheNumberOfAllocatedStructs(int numStructs) throws Exception {
+		StructPool pool = new StructPool(SCHEMA, 2);
+
+		for (int i = 0; i < numStructs; i++) {
+			pool.allocate();
+		}
+		int size = pool.size();
+
+		Assert.assertEquals(numStructs, size);
+	}
+
+	@Test
+	public void setAndGet_allFieldTypes_returnsTheStoredValues() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+
+		long handle = pool.allocate();
+		pool.setInt(handle, ID, 7);
+		pool.setLong(handle, TIMESTAMP, 123456789L);
+		pool.setFloat(handle, X, 1.5f);
+		pool.setFloat(handle, Y, -2.5f);
+		pool.setDouble(handle, MASS, 10.25);
+
+		Assert.assertEquals(7, pool.getInt(handle, ID));
+		Assert.assertEquals(123456789L, pool.getLong(handle, TIMESTAMP));
+		Assert.assertEquals(1.5f, pool.getFloat(handle, X), 0f);
+		Assert.assertEquals(-2.5f, pool.getFloat(handle, Y), 0f);
+		Assert.assertEquals(10.25, pool.getDouble(handle, MASS), 0.0);
+	}
+
+	@Test
+	public void setAndGet_afterGrowing_valuesArePreserved() throws Exception {
+		StructPool pool = new StructPool(SCHEMA, 1);
+
+		long[] handles = new long[50];
+		for (int i = 0; i < handles.length; i++) {
+			handles[i] = pool.allocate();
+			pool.setInt(handles[i], ID, i);
+		}
+
+		for (int i = 0; i < handles.length; i++) {
+			Assert.assertEquals(i, pool.getInt(handles[i], ID));
+		}
+	}
+
+	@Test
+	public void allocate_afterFree_reusesTheSlotWithZeroedFields() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+
+		long handle = pool.allocate();
+		pool.setInt(handle, ID, 7);
+		pool.free(handle);
+		long newHandle = pool.allocate();
+
+		Assert.assertEquals(pool.slot(newHandle), (int) handle);
+		Assert.assertEquals(0, pool.getInt(newHandle, ID));
+		Assert.assertEquals(1, pool.getNumSlots());
+	}
+
+	@Test
+	public void isValid_handleOfReusedSlot_returnsFalse() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+
+		long staleHandle = pool.allocate();
+		pool.free(staleHandle);
+		long newHandle = pool.allocate();
+
+		Assert.assertFalse(pool.isValid(staleHandle));
+		Assert.assertTrue(pool.isValid(newHandle));
+	}
+
+	@Test
+	public void isValid_handleOfSlotReusedManyTimes_returnsFalse() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+
+		long staleHandle = pool.allocate();
+		pool.free(staleHandle);
+		for (int i = 0; i < 1000; i++) {
+			pool.free(pool.allocate());
+		}
+		long newHandle = pool.allocate();
+
+		Assert.assertFalse(pool.isValid(staleHandle));
+		Assert.assertNotEquals(staleHandle, newHandle);
+	}
+
+	@Test
+	public void free_generationWrapsAround_retiresTheSlot() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+		long firstHandle = pool.allocate();
+		pool.free(firstHandle);
+		pool.setGeneration(0, -1);
+
+		pool.free(pool.allocate());
+		long newHandle = pool.allocate();
+
+		Assert.assertFalse(pool.isValid(firstHandle));
+		Assert.assertEquals(1, pool.slot(newHandle));
+		Assert.assertEquals(2, pool.getNumSlots());
+	}
+
+	@Test
+	public void clear_slotWithWrappedGeneration_doesNotReuseTheSlot() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+		long firstHandle = pool.allocate();
+		pool.free(firstHandle);
+		pool.setGeneration(0, -1);
+		pool.free(pool.allocate());
+
+		pool.clear();
+		long newHandle = pool.allocate();
+
+		Assert.assertFalse(pool.isValid(firstHandle));
+		Assert.assertEquals(1, pool.slot(newHandle));
+	}
+
+	@Test
+	public void maxCapacity_byDefault_isTheLargestArrayLength() throws Exception {
+		Assert.assertEquals(Integer.MAX_VALUE - 8, StructPool.MAX_CAPACITY);
+	}
+
+	@Test
+	@Parameters({ "16777215, 33554430", "1073741819, 2147483638", "1073741820, 2147483639", "2147483639, 2147483639" })
+	public void grownCapacity_anyCapacity_doublesUpToMaxCapacity(int capacity, int expectedCapacity) throws Exception {
+		int grownCapacity = StructPool.grownCapacity(capacity);
+
+		Assert.assertEquals(expectedCapacity, grownCapacity);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createStructPool_initialCapacityAboveMaxCapacity_throwsIllegalArgumentException() throws Exception {
+		new StructPool(SCHEMA, StructPool.MAX_CAPACITY + 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getInt_staleHandle_throwsIllegalArgumentException() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+
+		long handle = pool.allocate();
+		pool.free(handle);
+		pool.getInt(handle, ID);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void free_invalidHandle_throwsIllegalArgumentException() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+
+		pool.free(StructPool.INVALID_HANDLE);
+	}
+
+	@Test
+	public void getFloatArray_bulkUpdate_updatesAllocatedStructs() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+		long first = pool.allocate();
+		long second = pool.allocate();
+		pool.setFloat(first, X, 1f);
+		pool.setFloat(second, X, 2f);
+
+		float[] xs = pool.getFloatArray(X);
+		for (int slot = 0; slot < pool.getNumSlots(); slot++) {
+			if (pool.isAllocatedSlot(slot)) {
+				xs[slot] += 10f;
+			}
+		}
+
+		Assert.assertEquals(11f, pool.getFloat(first, X), 0f);
+		Assert.assertEquals(12f, pool.getFloat(second, X), 0f);
+	}
+
+	@Test
+	public void clear_poolWithStructs_allHandlesAreStale() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+
+		long first = pool.allocate();
+		long second = pool.allocate();
+		pool.clear();
+
+		Assert.assertTrue(pool.isEmpty());
+		Assert.assertFalse(pool.isValid(first));
+		Assert.assertFalse(pool.isValid(second));
+	}
+
+	@Test
+	public void handleAt_allocatedSlot_returnsTheHandleOfTheStruct() throws Exception {
+		StructPool pool = new StructPool(SCHEMA);
+
+		long handle = pool.allocate();
+		long handleAtSlot = pool.handleAt(pool.slot(handle));
+
+		Assert.assertEquals(handle, handleAtSlot);
+	}
+
+	@Test
+	public void getIntField_declaredField_returnsItsIndex() throws Exception {
+		int field = SCHEMA.getIntField("id");
+
+		Assert.assertEquals(ID, field);
+		Assert.assertEquals(-1, SCHEMA.getIntField("missing"));
+	}
+
+}
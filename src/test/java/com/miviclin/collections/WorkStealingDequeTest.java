@@ -0,0 +1,214 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class WorkStealingDequeTest {
+
+	@Test
+	public void createEmptyDeque_byDefault_isEmpty() throws Exception {
+		WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+
+		boolean empty = deque.isEmpty();
+
+		Assert.assertTrue(empty);
+	}
+
+	@Test
+	public void pop_emptyDeque_returnsNull() throws Exception {
+		WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+
+		Integer task = deque.pop();
+
+		Assert.assertNull(task);
+		Assert.assertEquals(0, deque.size());
+	}
+
+	@Test
+	public void steal_emptyDeque_returnsNull() throws Exception {
+		WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+
+		Integer task = deque.steal();
+
+		Assert.assertNull(task);
+	}
+
+	@Test
+	@Parameters({ "1", "3", "100" })
+	public void pop_dequeWithOneOrMoreTasks_returnsTasksInLifoOrder(int numTasks) throws Exception {
+		WorkStealingDeque<Integer> deque = createDeque(numTasks);
+
+		for (int i = numTasks - 1; i >= 0; i--) {
+			Assert.assertEquals(Integer.valueOf(i), deque.pop());
+		}
+
+		Assert.assertTrue(deque.isEmpty());
+	}
+
+	@Test
+	@Parameters({ "1", "3", "100" })
+	public void steal_dequeWithOneOrMoreTasks_returnsTasksInFifoOrder(int numTasks) throws Exception {
+		WorkStealingDeque<Integer> deque = createDeque(numTasks);
+
+		for (int i = 0; i < numTasks; i++) {
+			Assert.assertEquals(Integer.valueOf(i), deque.steal());
+		}
+
+		Assert.assertTrue(deque.isEmpty());
+	}
+
+	@Test
+	public void push_moreTasksThanCapacity_growsAndKeepsAllTasks() throws Exception {
+		WorkStealingDeque<Integer> deque = new WorkStealingDeque<>(2);
+
+		for (int i = 0; i < 10; i++) {
+			deque.push(i);
+		}
+
+		Assert.assertEquals(10, deque.size());
+		Assert.assertTrue(deque.capacity() > 10);
+		Assert.assertEquals(Integer.valueOf(0), deque.steal());
+		Assert.assertEquals(Integer.valueOf(9), deque.pop());
+	}
+
+	@Test
+	public void popAndSteal_interleaved_returnTasksFromOppositeEnds() throws Exception {
+		WorkStealingDeque<Integer> deque = createDeque(4);
+
+		Integer stolen = deque.steal();
+		Integer popped = deque.pop();
+
+		Assert.assertEquals(Integer.valueOf(0), stolen);
+		Assert.assertEquals(Integer.valueOf(3), popped);
+		Assert.assertEquals(2, deque.size());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void push_nullObject_throwsNullPointerException() throws Exception {
+		WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+
+		deque.push(null);
+	}
+
+	@Test
+	public void popAndSteal_concurrentThieves_everyTaskIsTakenExactlyOnce() throws Exception {
+		final int numTasks = 200000;
+		final int numThieves = 3;
+		final WorkStealingDeque<Integer> deque = new WorkStealingDeque<>(2);
+		final AtomicIntegerArray timesTaken = new AtomicIntegerArray(numTasks);
+		final AtomicBoolean ownerDone = new AtomicBoolean(false);
+		final CountDownLatch thievesDone = new CountDownLatch(numThieves);
+
+		for (int i = 0; i < numThieves; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					while (!ownerDone.get() || !deque.isEmpty()) {
+						Integer task = deque.steal();
+						if (task != null) {
+							timesTaken.incrementAndGet(task);
+						}
+					}
+					thievesDone.countDown();
+				}
+			}).start();
+		}
+
+		for (int i = 0; i < numTasks; i++) {
+			deque.push(i);
+			if (i % 3 == 0) {
+				Integer task = deque.pop();
+				if (task != null) {
+					timesTaken.incrementAndGet(task);
+				}
+			}
+		}
+		Integer task;
+		while ((task = deque.pop()) != null) {
+			timesTaken.incrementAndGet(task);
+		}
+		ownerDone.set(true);
+		thievesDone.await();
+
+		for (int i = 0; i < numTasks; i++) {
+			Assert.assertEquals("Task " + i, 1, timesTaken.get(i));
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void popAndSteal_recycledTasks_everyPushIsTakenExactlyOnce() throws Exception {
+		final int numPushes = 200000;
+		final int numThieves = 3;
+		final Integer[] tasks = new Integer[4];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = Integer.valueOf(i);
+		}
+		final WorkStealingDeque<Integer> deque = new WorkStealingDeque<>(4);
+		final AtomicInteger numTaken = new AtomicInteger(0);
+		final AtomicBoolean ownerDone = new AtomicBoolean(false);
+		final CountDownLatch thievesDone = new CountDownLatch(numThieves);
+
+		for (int i = 0; i < numThieves; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					while (!ownerDone.get() || !deque.isEmpty()) {
+						if (deque.steal() != null) {
+							numTaken.incrementAndGet();
+						}
+					}
+					thievesDone.countDown();
+				}
+			}).start();
+		}
+
+		for (int i = 0; i < numPushes; i++) {
+			deque.push(tasks[i % tasks.length]);
+			if (i % 5 == 0 && deque.pop() != null) {
+				numTaken.incrementAndGet();
+			}
+		}
+		while (deque.pop() != null) {
+			numTaken.incrementAndGet();
+		}
+		ownerDone.set(true);
+		thievesDone.await();
+
+		Assert.assertEquals(numPushes, numTaken.get());
+	}
+
+	private static WorkStealingDeque<Integer> createDeque(int numTasks) {
+		WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+		for (int i = 0; i < numTasks; i++) {
+			deque.push(i);
+		}
+		return deque;
+	}
+
+}
@@ -0,0 +1,143 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JfrPoolMonitorTest {
+
+	@Test
+	public void isSupported_java17_returnsTrue() throws Exception {
+		boolean supported = JfrPoolMonitor.isSupported();
+
+		Assert.assertTrue(supported);
+	}
+
+	@Test
+	public void obtain_emptyPoolWithJfrMonitor_emitsObjectCreatedEvent() throws Exception {
+		Pool<Object> pool = createPool();
+		pool.setName("test-pool");
+		pool.setMonitor(new JfrPoolMonitor());
+
+		List<RecordedEvent> events = record("com.miviclin.collections.ObjectCreated", true, () -> pool.obtain());
+
+		Assert.assertEquals(1, events.size());
+		Assert.assertEquals("test-pool", events.get(0).getString("poolName"));
+	}
+
+	@Test
+	public void offer_queueWithoutPooledNodesWithJfrMonitor_emitsNodeCreatedEvent() throws Exception {
+		PooledLinkedQueue<Integer> queue = new PooledLinkedQueue<>(0);
+		queue.setName("test-queue");
+		queue.setMonitor(new JfrPoolMonitor());
+
+		List<RecordedEvent> events = record("com.miviclin.collections.NodeCreated", true, () -> queue.offer(1));
+
+		Assert.assertEquals(1, events.size());
+		Assert.assertEquals("test-queue", events.get(0).getString("queueName"));
+	}
+
+	@Test
+	public void reportSize_poolWithJfrMonitor_emitsPoolSizeEvent() throws Exception {
+		Pool<Object> pool = createPool();
+		pool.setName("test-pool");
+		pool.setMonitor(new JfrPoolMonitor());
+		pool.recycle(new Object());
+
+		List<RecordedEvent> events = record("com.miviclin.collections.PoolSize", true, () -> pool.reportSize());
+
+		Assert.assertEquals(1, events.size());
+		Assert.assertEquals("test-pool", events.get(0).getString("poolName"));
+		Assert.assertEquals(1, events.get(0).getInt("size"));
+	}
+
+	@Test
+	public void reportSize_queueWithJfrMonitor_emitsQueueSizeEvent() throws Exception {
+		PooledLinkedQueue<Integer> queue = new PooledLinkedQueue<>(0);
+		queue.setName("test-queue");
+		queue.setMonitor(new JfrPoolMonitor());
+		queue.offer(1);
+
+		List<RecordedEvent> events = record("com.miviclin.collections.QueueSize", true, () -> queue.reportSize());
+
+		Assert.assertEquals(1, events.size());
+		Assert.assertEquals("test-queue", events.get(0).getString("queueName"));
+		Assert.assertEquals(1, events.get(0).getInt("size"));
+	}
+
+	@Test
+	public void obtain_eventDisabled_emitsNoEvent() throws Exception {
+		Pool<Object> pool = createPool();
+		pool.setMonitor(new JfrPoolMonitor());
+
+		List<RecordedEvent> events = record("com.miviclin.collections.ObjectCreated", false, () -> pool.obtain());
+
+		Assert.assertTrue(events.isEmpty());
+	}
+
+	/**
+	 * Runs the specified action while a recording is running, and returns the recorded events of the specified type.
+	 *
+	 * @param eventName Name of the event.
+	 * @param enabled Whether the event is enabled in the recording.
+	 * @param action Action.
+	 * @return Recorded events
+	 */
+	private static List<RecordedEvent> record(String eventName, boolean enabled, Runnable action) throws Exception {
+		Path file = Files.createTempFile("collections", ".jfr");
+		try (Recording recording = new Recording()) {
+			if (enabled) {
+				recording.enable(eventName);
+			} else {
+				recording.disable(eventName);
+			}
+			recording.start();
+			action.run();
+			recording.stop();
+			recording.dump(file);
+
+			List<RecordedEvent> events = new ArrayList<>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+				if (event.getEventType().getName().equals(eventName)) {
+					events.add(event);
+				}
+			}
+			return events;
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static Pool<Object> createPool() {
+		return new Pool<Object>() {
+
+			@Override
+			public Object createObject() {
+				return new Object();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,47 @@
+/*   Copyright 2014 Miguel Vicente Linares
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.miviclin.collections;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PlatformTest {
+
+	@Test
+	public void onSpinWait_spinLoop_returnsOnceTheConditionHolds() throws Exception {
+		AtomicBoolean ready = new AtomicBoolean();
+		Thread thread = new Thread(() -> ready.set(true));
+		thread.start();
+
+		while (!ready.get()) {
+			Platform.onSpinWait();
+		}
+		thread.join(10000);
+
+		Assert.assertTrue(ready.get());
+	}
+
+	@Test
+	public void platform_multiReleaseJar_loadsTheJava17Implementation() throws Exception {
+		Class<?> platform = Platform.class;
+
+		String location = platform.getResource("Platform.class").toString();
+
+		Assert.assertTrue(location, location.contains("META-INF/versions/17/"));
+	}
+
+}